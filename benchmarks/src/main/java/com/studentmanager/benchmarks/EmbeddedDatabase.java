@@ -0,0 +1,71 @@
+package com.studentmanager.benchmarks;
+
+import com.studentmanager.shared.GradeEntryDTO;
+import com.studentmanager.shared.ImportReport;
+import com.studentmanager.shared.StudentDTO;
+import com.studentmanager.shared.StudentService;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Baza H2 w pamięci zamiast PostgreSQL - benchmarki działają bez sieci i bez instalowania bazy
+public final class EmbeddedDatabase {
+    public static final String[] COURSES = {
+            "Matematyka", "Fizyka", "Chemia", "Informatyka", "Biologia",
+            "Historia", "Geografia", "Filozofia", "Ekonomia", "Statystyka"
+    };
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+    private static final int IMPORT_BATCH = 1000;
+
+    private EmbeddedDatabase() {}
+
+    // Konfiguracja serwera dla nowej, pustej bazy
+    public static Properties properties() {
+        Properties props = new Properties();
+        // NON_KEYWORDS=VALUE - kolumna grades.value jest słowem kluczowym w H2 2.x
+        props.setProperty("db.url", "jdbc:h2:mem:bench" + DATABASES.incrementAndGet()
+                + ";DB_CLOSE_DELAY=-1;NON_KEYWORDS=VALUE");
+        props.setProperty("db.user", "sa");
+        props.setProperty("db.password", "");
+        props.setProperty("db.driver", "org.h2.Driver");
+        props.setProperty("db.dialect", "org.hibernate.dialect.H2Dialect");
+        props.setProperty("db.showSql", "false");
+        props.setProperty("db.pool.maxSize", "16");
+        return props;
+    }
+
+    // Dodaje studentów (numery indeksów s0..sN-1) i po gradesPerStudent ocen każdemu
+    public static void seed(StudentService service, int students, int gradesPerStudent) throws RemoteException {
+        List<StudentDTO> studentBatch = new ArrayList<>();
+        for (int i = 0; i < students; i++) {
+            studentBatch.add(new StudentDTO(null, "Imię" + i, "Nazwisko" + (i % 997), "s" + i));
+            if (studentBatch.size() == IMPORT_BATCH || i == students - 1) {
+                check(service.addStudents(studentBatch));
+                studentBatch.clear();
+            }
+        }
+
+        List<GradeEntryDTO> gradeBatch = new ArrayList<>();
+        for (int i = 0; i < students; i++) {
+            for (int g = 0; g < gradesPerStudent; g++) {
+                gradeBatch.add(new GradeEntryDTO("s" + i, COURSES[(i + g) % COURSES.length], 2.0 + (i + g) % 4));
+                if (gradeBatch.size() == IMPORT_BATCH) {
+                    check(service.addGrades(gradeBatch));
+                    gradeBatch.clear();
+                }
+            }
+        }
+        if (!gradeBatch.isEmpty()) check(service.addGrades(gradeBatch));
+    }
+
+    private static void check(ImportReport report) {
+        if (report.getFailed() > 0) {
+            throw new IllegalStateException("Nie udało się przygotować danych: " + report.getRows().stream()
+                    .filter(r -> !r.isSuccess()).findFirst().orElseThrow());
+        }
+    }
+}
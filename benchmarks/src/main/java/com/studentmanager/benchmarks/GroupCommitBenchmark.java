@@ -0,0 +1,65 @@
+package com.studentmanager.benchmarks;
+
+import com.studentmanager.server.ServerImpl;
+import com.studentmanager.shared.StudentDTO;
+import org.openjdk.jmh.annotations.*;
+
+import java.rmi.RemoteException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// addGrade/removeGrade z wielu równoczesnych piszących: każda ocena we własnej transakcji (groupCommit=false)
+// albo grupowe transakcje (groupCommit=true). H2 nie robi fsync przy commit, więc zysk na PostgreSQL jest większy -
+// liczba transakcji na operację jest w statystykach groupCommit.* serwera.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(1)
+public class GroupCommitBenchmark {
+    private static final String COURSE = "Egzamin";
+
+    @Param({"false", "true"})
+    public boolean groupCommit;
+
+    private ServerImpl server;
+    private long[] studentIds;
+    private final AtomicInteger threads = new AtomicInteger();
+
+    // Każdy wątek pisze oceny swojego studenta - bez konfliktów na parze student-przedmiot
+    @State(Scope.Thread)
+    public static class Writer {
+        long studentId;
+
+        @Setup(Level.Trial)
+        public void setUp(GroupCommitBenchmark benchmark) {
+            studentId = benchmark.studentIds[benchmark.threads.getAndIncrement() % benchmark.studentIds.length];
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Properties props = EmbeddedDatabase.properties();
+        props.setProperty("db.pool.maxSize", "40");
+        props.setProperty("grades.groupCommit.enabled", Boolean.toString(groupCommit));
+        server = new ServerImpl(props);
+        for (int i = 0; i < 64; i++) server.addStudent(new StudentDTO(null, "Jan", "Kowalski", "w" + i));
+        // Przedmiot tworzony z góry - równoczesne pierwsze addGrade bez grup ścigałyby się o jego utworzenie
+        server.addCourse(COURSE);
+        studentIds = server.getAllStudents().stream().mapToLong(StudentDTO::getId).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.shutdown();
+    }
+
+    @Benchmark
+    public void addAndRemoveGrade(Writer writer) throws RemoteException {
+        server.addGrade(writer.studentId, COURSE, 4);
+        server.removeGrade(writer.studentId, COURSE);
+    }
+}
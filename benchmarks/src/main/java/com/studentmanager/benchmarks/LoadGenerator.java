@@ -0,0 +1,427 @@
+package com.studentmanager.benchmarks;
+
+import com.studentmanager.server.LatencyHistogram;
+import com.studentmanager.server.ServerImpl;
+import com.studentmanager.shared.*;
+
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Generator obciążenia i test długotrwały (soak): load.clients klientów (wątków z własnym stubem RMI albo połączeniem NIO) wywołuje
+// mieszankę operacji (load.mix) i co load.intervalSeconds wypisuje przepustowość, percentyle czasów i błędy
+// per operacja oraz pamięć po GC i wątki serwera (getServerStats). Na koniec podsumowanie całego testu
+// i trend pamięci/wątków - rosnące przy długim teście wskazują wyciek.
+//   load.mode=closed - klient wysyła kolejne żądanie po odebraniu odpowiedzi (i przerwie load.thinkMs),
+//   load.mode=open   - żądania według harmonogramu, łącznie load.rate na sekundę, niezależnie od odpowiedzi;
+//                      czas liczony od zaplanowanej chwili, więc zaległości serwera widać w percentylach.
+// Bez load.host uruchamia serwer na wbudowanej bazie H2 (load.students studentów) z rejestrem RMI na localhost -
+// wtedy pamięć i wątki serwera obejmują też generator, więc test soak lepiej prowadzić na osobnym serwerze.
+// Przykład: java -Dload.host=localhost -Dload.mode=open -Dload.rate=2000 -Dload.durationSeconds=28800
+//               -cp benchmarks/target/benchmarks.jar com.studentmanager.benchmarks.LoadGenerator
+public class LoadGenerator {
+    private static final String[] OPERATIONS = {"getAllStudents", "getGradesForStudent", "addGrade", "removeGrade"};
+    private static final int GET_ALL = 0;
+    private static final int GET_GRADES = 1;
+    private static final int ADD_GRADE = 2;
+    private static final int REMOVE_GRADE = 3;
+    // Generator dodaje i usuwa oceny tylko z tych przedmiotów, a na koniec usuwa swoje oceny
+    private static final String[] LOAD_COURSES = {"Obciążenie A", "Obciążenie B", "Obciążenie C", "Obciążenie D"};
+    private static final long MB = 1024 * 1024;
+
+    // Pomiary operacji w jednym oknie - interwale albo całym teście
+    private static class Window {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final LongAdder count = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAccumulator maxMicros = new LongAccumulator(Long::max, 0);
+
+        void record(long micros, boolean failed) {
+            if (failed) {
+                errors.increment();
+                return;
+            }
+            histogram.record(micros);
+            count.increment();
+            maxMicros.accumulate(micros);
+        }
+
+        // Górna granica kubełka histogramu może przekraczać faktyczne maksimum
+        long percentile(double fraction) {
+            return Math.min(histogram.percentile(fraction), maxMicros.get());
+        }
+    }
+
+    private static class OperationStats {
+        final Window total = new Window();
+        final AtomicReference<Window> interval = new AtomicReference<>(new Window());
+        final AtomicReference<String> lastError = new AtomicReference<>();
+
+        void record(long micros, Exception error) {
+            total.record(micros, error != null);
+            interval.get().record(micros, error != null);
+            // Pierwsza linia - komunikat RemoteException zawiera też przyczynę
+            if (error != null) lastError.set(String.valueOf(error.getMessage()).split("\n")[0]);
+        }
+    }
+
+    private final String host = System.getProperty("load.host");
+    private final int port = Integer.getInteger("load.port", 1099);
+    private final String transport = System.getProperty("load.transport", "rmi");
+    private final int nioPort = Integer.getInteger("load.nioPort", 1100);
+    private final int clients = Integer.getInteger("load.clients", 16);
+    private final boolean open = "open".equals(System.getProperty("load.mode", "closed"));
+    private final double rate = Double.parseDouble(System.getProperty("load.rate", "1000"));
+    private final long thinkNanos = TimeUnit.MILLISECONDS.toNanos(Long.getLong("load.thinkMs", 0));
+    private final long durationSeconds = Long.getLong("load.durationSeconds", 60);
+    private final long intervalSeconds = Math.max(1, Long.getLong("load.intervalSeconds", 10));
+    private final int students = Integer.getInteger("load.students", 1000);
+    private final String csv = System.getProperty("load.csv");
+
+    private final int[] cumulativeWeights = new int[OPERATIONS.length];
+    private final OperationStats[] stats = new OperationStats[OPERATIONS.length];
+    private final List<AutoCloseable> connections = new ArrayList<>();
+    private ServerImpl embeddedServer;
+    private Registry embeddedRegistry;
+    private int embeddedPort;
+    private long[] studentIds;
+    private volatile boolean running = true;
+
+    public static void main(String[] args) throws Exception {
+        new LoadGenerator().run();
+        // Wątki RMI klienta i serwera wbudowanego nie kończą się same
+        System.exit(0);
+    }
+
+    private LoadGenerator() {
+        parseMix(System.getProperty("load.mix", "getAllStudents=2,getGradesForStudent=78,addGrade=10,removeGrade=10"));
+        for (int i = 0; i < stats.length; i++) stats[i] = new OperationStats();
+    }
+
+    // "operacja=waga,..." - operacje bez wagi nie są wywoływane
+    private void parseMix(String mix) {
+        int[] weights = new int[OPERATIONS.length];
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split("=");
+            int op = Arrays.asList(OPERATIONS).indexOf(kv[0].trim());
+            if (op < 0 || kv.length != 2) {
+                throw new IllegalArgumentException("Nieprawidłowy element load.mix: " + part
+                        + " (operacje: " + String.join(", ", OPERATIONS) + ")");
+            }
+            weights[op] = Integer.parseInt(kv[1].trim());
+        }
+        int sum = 0;
+        for (int i = 0; i < weights.length; i++) cumulativeWeights[i] = sum += Math.max(0, weights[i]);
+        if (sum == 0) throw new IllegalArgumentException("load.mix nie zawiera żadnej operacji");
+    }
+
+    private void run() throws Exception {
+        StudentService statsService = connect();
+        studentIds = statsService.getAllStudents().stream().mapToLong(StudentDTO::getId).toArray();
+        if (studentIds.length == 0) throw new IllegalStateException("Serwer nie ma studentów");
+        // Przedmioty tworzone z góry - równoczesne pierwsze addGrade ścigałyby się o ich utworzenie
+        for (String course : LOAD_COURSES) statsService.addCourse(course);
+
+        List<StudentService> services = new ArrayList<>();
+        for (int i = 0; i < clients; i++) services.add(connect());
+        List<Client> workers = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        // Harmonogram open loop liczony od wspólnego początku, po nawiązaniu wszystkich połączeń
+        long startNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        for (int i = 0; i < clients; i++) {
+            Client client = new Client(i, services.get(i), startNanos);
+            Thread thread = new Thread(client, "load-client-" + i);
+            workers.add(client);
+            threads.add(thread);
+        }
+        System.out.println("Obciążenie: " + clients + " klientów (" + transport + "), "
+                + (open ? "open, " + rate + " żądań/s" : "closed, przerwa " + TimeUnit.NANOSECONDS.toMillis(thinkNanos) + " ms")
+                + ", " + durationSeconds + " s, " + studentIds.length + " studentów");
+        threads.forEach(Thread::start);
+
+        try (PrintWriter csvOut = csv != null ? new PrintWriter(new FileWriter(csv)) : null) {
+            if (csvOut != null) {
+                csvOut.println("second,operation,perSecond,p50Micros,p90Micros,p99Micros,maxMicros,errors,heapAfterGcMB,threads");
+            }
+            report(statsService, startNanos, csvOut);
+        }
+
+        running = false;
+        for (Thread thread : threads) thread.join();
+        for (Client client : workers) client.cleanUp();
+        for (int i = connections.size() - 1; i >= 0; i--) {
+            try {
+                connections.get(i).close();
+            } catch (Exception ignored) {
+                // zamykanie
+            }
+        }
+    }
+
+    private StudentService connect() throws Exception {
+        if (host == null && embeddedServer == null) startEmbeddedServer();
+        String target = host != null ? host : "localhost";
+        if ("nio".equals(transport)) {
+            NioStudentService service = new NioStudentService(target,
+                    host != null ? nioPort : embeddedServer.startNioServer(0, 32, 256));
+            connections.add(service);
+            return service;
+        }
+        return (StudentService) LocateRegistry.getRegistry(target, host != null ? port : embeddedPort)
+                .lookup("StudentService");
+    }
+
+    private void startEmbeddedServer() throws Exception {
+        embeddedServer = new ServerImpl(EmbeddedDatabase.properties());
+        EmbeddedDatabase.seed(embeddedServer, students, 5);
+        try (ServerSocket socket = new ServerSocket(0)) {
+            embeddedPort = socket.getLocalPort();
+        }
+        embeddedRegistry = LocateRegistry.createRegistry(embeddedPort);
+        embeddedRegistry.rebind("StudentService", embeddedServer);
+        connections.add(() -> {
+            UnicastRemoteObject.unexportObject(embeddedRegistry, true);
+            embeddedServer.shutdown();
+        });
+    }
+
+    // --- Raporty ---
+
+    private void report(StudentService statsService, long startNanos, PrintWriter csvOut) throws InterruptedException {
+        long endNanos = startNanos + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(intervalSeconds);
+        long intervalStart = startNanos;
+        List<long[]> jvmHistory = new ArrayList<>();
+        while (intervalStart < endNanos) {
+            long intervalEnd = Math.min(endNanos, intervalStart + intervalNanos);
+            sleepUntil(intervalEnd);
+            double seconds = (System.nanoTime() - intervalStart) / 1e9;
+            long elapsed = Math.round((System.nanoTime() - startNanos) / 1e9);
+
+            long[] jvm = serverJvm(statsService);
+            if (jvm != null) jvmHistory.add(jvm);
+            long count = 0;
+            long errors = 0;
+            Window[] windows = new Window[OPERATIONS.length];
+            for (int i = 0; i < OPERATIONS.length; i++) {
+                windows[i] = stats[i].interval.getAndSet(new Window());
+                count += windows[i].count.sum();
+                errors += windows[i].errors.sum();
+            }
+            System.out.printf("[%5d s] %.0f op/s, błędy %s%s%n", elapsed, count / seconds, errorRate(count, errors),
+                    jvm != null ? String.format(", serwer: pamięć po GC %d MB, wątki %d", jvm[0] / MB, jvm[1]) : "");
+            for (int i = 0; i < OPERATIONS.length; i++) {
+                Window window = windows[i];
+                if (window.count.sum() + window.errors.sum() == 0) continue;
+                System.out.println("    " + line(OPERATIONS[i], window, seconds));
+                if (csvOut != null) {
+                    csvOut.printf(Locale.ROOT, "%d,%s,%.1f,%d,%d,%d,%d,%d,%s,%s%n", elapsed, OPERATIONS[i],
+                            window.count.sum() / seconds, window.percentile(0.50), window.percentile(0.90),
+                            window.percentile(0.99), window.maxMicros.get(), window.errors.sum(),
+                            jvm != null ? jvm[0] / MB : "", jvm != null ? jvm[1] : "");
+                }
+            }
+            if (csvOut != null) csvOut.flush();
+            intervalStart = intervalEnd;
+        }
+
+        double seconds = durationSeconds;
+        System.out.println("Podsumowanie (" + durationSeconds + " s):");
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            Window total = stats[i].total;
+            if (total.count.sum() + total.errors.sum() == 0) continue;
+            System.out.println("    " + line(OPERATIONS[i], total, seconds));
+            String lastError = stats[i].lastError.get();
+            if (lastError != null) System.out.println("        ostatni błąd: " + lastError);
+        }
+        printTrend(jvmHistory);
+    }
+
+    private static String line(String operation, Window window, double seconds) {
+        long count = window.count.sum();
+        long errors = window.errors.sum();
+        return String.format("%-20s %8.1f op/s  p50 %6d us  p90 %6d us  p99 %7d us  max %7d us  błędy %s",
+                operation, count / seconds, window.percentile(0.50), window.percentile(0.90),
+                window.percentile(0.99), window.maxMicros.get(), errorRate(count, errors));
+    }
+
+    private static String errorRate(long count, long errors) {
+        return String.format("%d (%.2f%%)", errors, count + errors == 0 ? 0.0 : 100.0 * errors / (count + errors));
+    }
+
+    // {pamięć po GC, wątki} serwera albo null, gdy nie udało się pobrać statystyk
+    private static long[] serverJvm(StudentService service) {
+        try {
+            Map<String, Number> gauges = service.getServerStats().getGauges();
+            Number afterGc = gauges.get("jvm.heap.afterGc");
+            Number threads = gauges.get("jvm.threads");
+            if (afterGc == null || threads == null) return null;
+            return new long[]{afterGc.longValue(), threads.longValue()};
+        } catch (RemoteException e) {
+            System.out.println("Nie udało się pobrać statystyk serwera: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Początek i koniec testu z pominięciem pierwszej ćwiartki (rozgrzewka, wypełnianie cache)
+    private static void printTrend(List<long[]> history) {
+        if (history.size() < 4) return;
+        long[] first = history.get(history.size() / 4);
+        long[] last = history.get(history.size() - 1);
+        long maxHeap = 0;
+        long maxThreads = 0;
+        for (long[] jvm : history) {
+            maxHeap = Math.max(maxHeap, jvm[0]);
+            maxThreads = Math.max(maxThreads, jvm[1]);
+        }
+        System.out.printf("Serwer: pamięć po GC %d -> %d MB (najwięcej %d MB), wątki %d -> %d (najwięcej %d)%n",
+                first[0] / MB, last[0] / MB, maxHeap / MB, first[1], last[1], maxThreads);
+        if (last[1] > first[1] + 10) {
+            System.out.println("UWAGA: liczba wątków serwera rośnie w trakcie testu");
+        }
+        if (last[0] > first[0] * 3 / 2 && last[0] - first[0] > 32 * MB) {
+            System.out.println("UWAGA: pamięć po GC rośnie w trakcie testu (możliwy wyciek)");
+        }
+    }
+
+    private static void sleepUntil(long deadline) throws InterruptedException {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+
+    // --- Klient ---
+
+    private class Client implements Runnable {
+        private final StudentService service;
+        private final Random random;
+        private final long startNanos;
+        private final long scheduleNanos;
+        // Studenci, których oceny zmienia ten klient - bez konfliktów z innymi klientami na parze student-przedmiot
+        private final long[] ownStudents;
+        // Pary (indeks w ownStudents * liczba przedmiotów + przedmiot) z oceną dodaną przez klienta
+        private final List<Integer> graded = new ArrayList<>();
+        private final Set<Integer> gradedSet = new HashSet<>();
+
+        Client(int index, StudentService service, long startNanos) {
+            this.service = service;
+            this.random = new Random(index);
+            // Open loop: każdy klient co clients/rate s, przesunięci względem siebie o 1/rate s
+            this.scheduleNanos = open ? (long) (1e9 * clients / rate) : 0;
+            this.startNanos = startNanos + (open ? (long) (1e9 * index / rate) : 0);
+            List<Long> slice = new ArrayList<>();
+            for (int i = index; i < studentIds.length; i += clients) slice.add(studentIds[i]);
+            // Więcej klientów niż studentów - część klientów dzieli studentów (możliwe błędy duplikatu)
+            if (slice.isEmpty()) slice.add(studentIds[index % studentIds.length]);
+            this.ownStudents = slice.stream().mapToLong(Long::longValue).toArray();
+        }
+
+        @Override
+        public void run() {
+            long next = startNanos;
+            sleepQuietly(next);
+            while (running) {
+                long scheduled;
+                if (open) {
+                    sleepQuietly(next);
+                    scheduled = next;
+                    next += scheduleNanos;
+                } else {
+                    scheduled = System.nanoTime();
+                }
+                if (!running) break;
+                int op = pick();
+                Exception error = null;
+                try {
+                    op = execute(op);
+                } catch (RemoteException | RuntimeException e) {
+                    error = e;
+                }
+                stats[op].record((System.nanoTime() - scheduled) / 1000, error);
+                if (!open && thinkNanos > 0) LockSupport.parkNanos(thinkNanos);
+            }
+        }
+
+        private int pick() {
+            int r = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                if (r < cumulativeWeights[i]) return i;
+            }
+            return cumulativeWeights.length - 1;
+        }
+
+        // Zwraca faktycznie wykonaną operację - bez ocen do usunięcia removeGrade zamienia się w addGrade i odwrotnie
+        private int execute(int op) throws RemoteException {
+            switch (op) {
+                case GET_ALL:
+                    service.getAllStudents();
+                    return GET_ALL;
+                case GET_GRADES:
+                    service.getGradesForStudent(studentIds[random.nextInt(studentIds.length)]);
+                    return GET_GRADES;
+                case ADD_GRADE:
+                    if (graded.size() < ownStudents.length * LOAD_COURSES.length) {
+                        addGrade();
+                        return ADD_GRADE;
+                    }
+                    removeGrade();
+                    return REMOVE_GRADE;
+                default:
+                    if (!graded.isEmpty()) {
+                        removeGrade();
+                        return REMOVE_GRADE;
+                    }
+                    addGrade();
+                    return ADD_GRADE;
+            }
+        }
+
+        private void addGrade() throws RemoteException {
+            int pair;
+            do {
+                pair = random.nextInt(ownStudents.length * LOAD_COURSES.length);
+            } while (gradedSet.contains(pair));
+            service.addGrade(ownStudents[pair / LOAD_COURSES.length], LOAD_COURSES[pair % LOAD_COURSES.length],
+                    2 + random.nextInt(4));
+            graded.add(pair);
+            gradedSet.add(pair);
+        }
+
+        private void removeGrade() throws RemoteException {
+            int slot = random.nextInt(graded.size());
+            int pair = graded.get(slot);
+            // Usunięcie z listy przez zamianę z ostatnim elementem
+            graded.set(slot, graded.get(graded.size() - 1));
+            graded.remove(graded.size() - 1);
+            gradedSet.remove(pair);
+            service.removeGrade(ownStudents[pair / LOAD_COURSES.length], LOAD_COURSES[pair % LOAD_COURSES.length]);
+        }
+
+        // Usuwa oceny dodane przez generator
+        void cleanUp() {
+            while (!graded.isEmpty()) {
+                try {
+                    removeGrade();
+                } catch (RemoteException e) {
+                    System.out.println("Nie udało się usunąć oceny testowej: " + e.getMessage());
+                }
+            }
+        }
+
+        private void sleepQuietly(long deadline) {
+            long remaining;
+            while (running && (remaining = deadline - System.nanoTime()) > 0) LockSupport.parkNanos(remaining);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.studentmanager.benchmarks;
+
+import com.studentmanager.server.ServerImpl;
+import com.studentmanager.shared.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.ServerSocket;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Wszystkie operacje StudentService na bazie wbudowanej.
+// transport=inprocess - wywołania bezpośrednio na ServerImpl,
+// transport=rmi - przez rejestr RMI na localhost (z serializacją i siecią),
+// transport=nio - przez transport NIO (NioStudentService) na localhost.
+// Rozmiar danych: -p datasetSize=1000,50000
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StudentServiceBenchmark {
+    private static final int GRADES_PER_STUDENT = 5;
+    private static final int BULK_SIZE = 100;
+    // Zmiany po wersji syncVersion, którą "zna" klient synchronizacji przyrostowej
+    private static final int DELTA_CHANGES = 20;
+
+    @Param({"1000", "10000"})
+    public int datasetSize;
+
+    @Param({"inprocess", "rmi", "nio"})
+    public String transport;
+
+    private ServerImpl server;
+    private Registry registry;
+    private StudentService service;
+    private long[] studentIds;
+    private long syncVersion;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new ServerImpl(EmbeddedDatabase.properties());
+        EmbeddedDatabase.seed(server, datasetSize, GRADES_PER_STUDENT);
+        studentIds = server.getAllStudents().stream().mapToLong(StudentDTO::getId).toArray();
+        syncVersion = server.getStudentsChangedSince(0).getVersion();
+        for (int i = 0; i < DELTA_CHANGES; i++) {
+            server.addStudent(new StudentDTO(null, "Jan", "Kowalski", "delta" + i));
+        }
+
+        if ("rmi".equals(transport)) {
+            int port;
+            try (ServerSocket socket = new ServerSocket(0)) {
+                port = socket.getLocalPort();
+            }
+            registry = LocateRegistry.createRegistry(port);
+            registry.rebind("StudentService", server);
+            service = (StudentService) LocateRegistry.getRegistry("localhost", port).lookup("StudentService");
+        } else if ("nio".equals(transport)) {
+            service = new NioStudentService("localhost", server.startNioServer(0, 32, 64));
+        } else {
+            service = server;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (registry != null) UnicastRemoteObject.unexportObject(registry, true);
+        if (service instanceof NioStudentService) ((NioStudentService) service).close();
+        server.shutdown();
+    }
+
+    private long randomStudent() {
+        return studentIds[ThreadLocalRandom.current().nextInt(studentIds.length)];
+    }
+
+    private String uniqueIndex() {
+        return "b" + sequence.incrementAndGet();
+    }
+
+    // --- Odczyty ---
+
+    @Benchmark
+    public List<StudentDTO> getAllStudents() throws RemoteException {
+        return service.getAllStudents();
+    }
+
+    @Benchmark
+    public StudentPage getStudentsPage() throws RemoteException {
+        return service.getStudentsPage(StudentPageCursor.first(StudentSortKey.LAST_NAME), 100);
+    }
+
+    // Wyszukiwanie po fragmencie nazwiska (pasuje do wielu studentów) i po numerze indeksu
+    @Benchmark
+    public List<StudentDTO> searchStudentsByName() throws RemoteException {
+        return service.searchStudents("nazwisko" + ThreadLocalRandom.current().nextInt(100), 20);
+    }
+
+    @Benchmark
+    public List<StudentDTO> searchStudentsByIndex() throws RemoteException {
+        return service.searchStudents("s" + ThreadLocalRandom.current().nextInt(datasetSize), 20);
+    }
+
+    @Benchmark
+    public List<GradeDTO> getGradesForStudent() throws RemoteException {
+        return service.getGradesForStudent(randomStudent());
+    }
+
+    // Okno jak przy prefetchu klienta: zaznaczony student i po 5 sąsiadów z każdej strony
+    @Benchmark
+    public Map<Long, List<GradeDTO>> getGradesForStudents() throws RemoteException {
+        int start = ThreadLocalRandom.current().nextInt(Math.max(1, studentIds.length - 11));
+        List<Long> ids = new ArrayList<>(11);
+        for (int i = start; i < Math.min(studentIds.length, start + 11); i++) ids.add(studentIds[i]);
+        return service.getGradesForStudents(ids);
+    }
+
+    @Benchmark
+    public ChangeLog getStudentsChangedSince() throws RemoteException {
+        return service.getStudentsChangedSince(syncVersion);
+    }
+
+    // --- Zapisy ---
+
+    @Benchmark
+    public void addStudent() throws RemoteException {
+        service.addStudent(new StudentDTO(null, "Jan", "Kowalski", uniqueIndex()));
+    }
+
+    // Para dodaj/usuń - usuwany jest student dodany w tym samym wywołaniu
+    @Benchmark
+    public void addAndRemoveStudent() throws RemoteException {
+        ImportReport report = service.addStudents(List.of(new StudentDTO(null, "Jan", "Kowalski", uniqueIndex())));
+        service.removeStudent(report.getRows().get(0).getId());
+    }
+
+    @Benchmark
+    public void addExistingCourse() throws RemoteException {
+        service.addCourse(EmbeddedDatabase.COURSES[0]);
+    }
+
+    @Benchmark
+    public void addNewCourse() throws RemoteException {
+        service.addCourse("Przedmiot " + sequence.incrementAndGet());
+    }
+
+    // Ocena z przedmiotu, którego seed nie używa, więc nie ma konfliktu z istniejącymi ocenami
+    @Benchmark
+    public void addAndRemoveGrade() throws RemoteException {
+        long studentId = randomStudent();
+        String course = "Benchmark " + Thread.currentThread().threadId();
+        service.addGrade(studentId, course, 4);
+        service.removeGrade(studentId, course);
+    }
+
+    @Benchmark
+    public ImportReport addStudentsBulk() throws RemoteException {
+        List<StudentDTO> batch = new ArrayList<>(BULK_SIZE);
+        for (int i = 0; i < BULK_SIZE; i++) {
+            batch.add(new StudentDTO(null, "Jan", "Kowalski", uniqueIndex()));
+        }
+        return service.addStudents(batch);
+    }
+
+    // Każde wywołanie używa nowego przedmiotu, żeby oceny się nie powtarzały
+    @Benchmark
+    public ImportReport addGradesBulk() throws RemoteException {
+        String course = "Import " + sequence.incrementAndGet();
+        List<GradeEntryDTO> batch = new ArrayList<>(BULK_SIZE);
+        int start = ThreadLocalRandom.current().nextInt(Math.max(1, datasetSize - BULK_SIZE));
+        for (int i = 0; i < BULK_SIZE && start + i < datasetSize; i++) {
+            batch.add(new GradeEntryDTO("s" + (start + i), course, 3.0));
+        }
+        return service.addGrades(batch);
+    }
+}
@@ -0,0 +1,95 @@
+package com.studentmanager.benchmarks;
+
+import com.studentmanager.shared.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Serializacja Java dużych list: ArrayList<DTO> vs PackedStudentList/PackedGradeList.
+// Rozmiar strumienia wypisywany w @Setup, czas round-tripu mierzony przez JMH.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+    private static final String[] FIRST_NAMES = {
+            "Anna", "Jan", "Katarzyna", "Piotr", "Magdalena", "Tomasz", "Agnieszka", "Paweł",
+            "Małgorzata", "Krzysztof", "Joanna", "Michał", "Ewa", "Łukasz", "Zofia", "Jakub"
+    };
+    private static final String[] LAST_NAMES = {
+            "Nowak", "Kowalski", "Wiśniewski", "Wójcik", "Kowalczyk", "Kamiński", "Lewandowski",
+            "Zieliński", "Szymański", "Woźniak", "Dąbrowski", "Kozłowski", "Jankowski", "Mazur",
+            "Kwiatkowski", "Krawczyk", "Piotrowski", "Grabowski", "Nowakowski", "Pawłowski"
+    };
+    private static final double[] GRADE_VALUES = {2.0, 3.0, 3.5, 4.0, 4.5, 5.0};
+
+    @Param({"50000"})
+    public int size;
+
+    private List<StudentDTO> students;
+    private List<GradeDTO> grades;
+    private PackedStudentList packedStudents;
+    private PackedGradeList packedGrades;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        students = new ArrayList<>(size);
+        grades = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            students.add(new StudentDTO((long) i + 1,
+                    FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+                    LAST_NAMES[random.nextInt(LAST_NAMES.length)],
+                    String.format("s%06d", i)));
+            grades.add(new GradeDTO((long) i + 1,
+                    EmbeddedDatabase.COURSES[random.nextInt(EmbeddedDatabase.COURSES.length)],
+                    GRADE_VALUES[random.nextInt(GRADE_VALUES.length)]));
+        }
+        packedStudents = PackedStudentList.of(students);
+        packedGrades = PackedGradeList.of(grades);
+
+        System.out.printf("%nBajty dla %d wierszy: studenci ArrayList=%d packed=%d, oceny ArrayList=%d packed=%d%n",
+                size, serialize(students).length, serialize(packedStudents).length,
+                serialize(grades).length, serialize(packedGrades).length);
+    }
+
+    @Benchmark
+    public Object studentsArrayList() throws Exception {
+        return deserialize(serialize(students));
+    }
+
+    @Benchmark
+    public Object studentsPacked() throws Exception {
+        return deserialize(serialize(packedStudents));
+    }
+
+    @Benchmark
+    public Object gradesArrayList() throws Exception {
+        return deserialize(serialize(grades));
+    }
+
+    @Benchmark
+    public Object gradesPacked() throws Exception {
+        return deserialize(serialize(packedGrades));
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] data) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return in.readObject();
+        }
+    }
+}
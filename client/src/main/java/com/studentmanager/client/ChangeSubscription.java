@@ -0,0 +1,60 @@
+package com.studentmanager.client;
+
+import com.studentmanager.shared.ChangeEvent;
+import com.studentmanager.shared.StudentChangeListener;
+import javafx.application.Platform;
+
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Obiekt zdalny odbierający zmiany z serwera i przekazujący je do wątku JavaFX
+public class ChangeSubscription extends UnicastRemoteObject implements StudentChangeListener {
+    // Otwarta subskrypcja - zamykana przy wyjściu z aplikacji, żeby obiekt zdalny nie trzymał JVM
+    private static volatile ChangeSubscription active;
+
+    private final Consumer<List<ChangeEvent>> handler;
+
+    private ChangeSubscription(Consumer<List<ChangeEvent>> handler) throws RemoteException {
+        super();
+        this.handler = handler;
+    }
+
+    // Wywołanie blokujące (RMI) - nie wolno go wykonywać w wątku JavaFX
+    public static ChangeSubscription open(Consumer<List<ChangeEvent>> handler) throws RemoteException {
+        ChangeSubscription subscription = new ChangeSubscription(handler);
+        try {
+            ClientConnection.getService().subscribe(subscription);
+        } catch (RemoteException e) {
+            UnicastRemoteObject.unexportObject(subscription, true);
+            throw e;
+        }
+        active = subscription;
+        return subscription;
+    }
+
+    @Override
+    public void onChanges(List<ChangeEvent> events) {
+        Platform.runLater(() -> handler.accept(events));
+    }
+
+    public static void closeActive() {
+        ChangeSubscription current = active;
+        if (current != null) current.close();
+    }
+
+    public void close() {
+        if (active == this) active = null;
+        try {
+            ClientConnection.getService().unsubscribe(this);
+        } catch (Exception e) {
+            // serwer sam usunie nieosiągalnego subskrybenta
+        }
+        try {
+            UnicastRemoteObject.unexportObject(this, true);
+        } catch (Exception ignored) {
+            // już usunięty
+        }
+    }
+}
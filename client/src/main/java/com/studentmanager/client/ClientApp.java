@@ -30,6 +30,11 @@ public class ClientApp extends Application {
         stage.show();
     }
 
+    @Override
+    public void stop() {
+        ChangeSubscription.closeActive();
+    }
+
     public static void main(String[] args) {
         launch();
     }
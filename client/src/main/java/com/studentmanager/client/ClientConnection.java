@@ -3,12 +3,18 @@ package com.studentmanager.client;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 
+import com.studentmanager.shared.NioStudentService;
 import com.studentmanager.shared.StudentService;
 
 public class ClientConnection {
     private static StudentService service;
 
+    // -Dstudentmanager.transport=nio - binarny protokół NIO (jedno połączenie, wiele równoczesnych żądań) zamiast RMI
     public static void connect() throws Exception {
+        if ("nio".equalsIgnoreCase(System.getProperty("studentmanager.transport", "rmi"))) {
+            service = new NioStudentService("localhost", Integer.getInteger("studentmanager.nio.port", 1100));
+            return;
+        }
         Registry registry = LocateRegistry.getRegistry("localhost", 1099);
         service = (StudentService) registry.lookup("StudentService");
     }
@@ -0,0 +1,97 @@
+package com.studentmanager.client;
+
+import com.studentmanager.shared.GradeDTO;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+// Oceny pobrane przez klienta - LRU z czasem ważności, używane tylko z wątku JavaFX.
+// Wpis starszy niż TTL nadal jest zwracany (tabela pokazuje go od razu), ale wymaga odświeżenia w tle.
+// Rozmiar i TTL: -Dstudentmanager.gradeCache.size=200 -Dstudentmanager.gradeCache.ttlSeconds=30
+public class ClientGradeCache {
+    private static final String SIZE_PROPERTY = "studentmanager.gradeCache.size";
+    private static final String TTL_PROPERTY = "studentmanager.gradeCache.ttlSeconds";
+
+    private static class Entry {
+        final List<GradeDTO> grades;
+        final long loadedAt;
+
+        Entry(List<GradeDTO> grades, long loadedAt) {
+            this.grades = grades;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<Long, Entry> entries;
+    // Zwiększany przy każdej invalidacji - odpowiedź na zapytanie wysłane wcześniej może być nieaktualna
+    private long invalidations;
+
+    public ClientGradeCache(int maxEntries, long ttlSeconds) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(0, ttlSeconds));
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > ClientGradeCache.this.maxEntries;
+            }
+        };
+    }
+
+    public static ClientGradeCache fromSystemProperties() {
+        return new ClientGradeCache(Integer.getInteger(SIZE_PROPERTY, 200), Long.getLong(TTL_PROPERTY, 30L));
+    }
+
+    // null, jeśli brak wpisu (także przeterminowanego)
+    public List<GradeDTO> get(Long studentId) {
+        Entry entry = entries.get(studentId);
+        return entry != null ? entry.grades : null;
+    }
+
+    // Wpis istnieje i nie przekroczył TTL - nie trzeba pytać serwera
+    public boolean isFresh(Long studentId) {
+        Entry entry = entries.get(studentId);
+        return entry != null && System.nanoTime() - entry.loadedAt < ttlNanos;
+    }
+
+    // Znacznik pobierany przed wysłaniem zapytania i przekazywany do putAll()
+    public long stamp() {
+        return invalidations;
+    }
+
+    public void putAll(Map<Long, List<GradeDTO>> grades, long stamp) {
+        if (maxEntries == 0 || stamp != invalidations) return;
+        long now = System.nanoTime();
+        grades.forEach((studentId, list) -> {
+            if (list != null) entries.put(studentId, new Entry(list, now));
+        });
+    }
+
+    public void invalidate(Long studentId) {
+        invalidations++;
+        entries.remove(studentId);
+    }
+
+    public void clear() {
+        invalidations++;
+        entries.clear();
+    }
+
+    // Czy odświeżone oceny różnią się od pokazanych (GradeDTO nie ma equals)
+    public static boolean sameGrades(List<GradeDTO> a, List<GradeDTO> b) {
+        if (a == null || b == null || a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) {
+            GradeDTO x = a.get(i);
+            GradeDTO y = b.get(i);
+            if (!Objects.equals(x.getId(), y.getId()) || !Objects.equals(x.getCourseName(), y.getCourseName())
+                    || !Objects.equals(x.getValue(), y.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
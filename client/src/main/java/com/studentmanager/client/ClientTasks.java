@@ -0,0 +1,68 @@
+package com.studentmanager.client;
+
+import javafx.concurrent.Task;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+// Wspólna pula dla wywołań serwera z interfejsu zamiast nowego wątku na każde kliknięcie.
+// Wątki wirtualne - czekanie na odpowiedź RMI nie blokuje wątku systemowego, a stała liczba wątków
+// ogranicza liczbę równoczesnych wywołań (-Dstudentmanager.client.maxConcurrentCalls=8).
+public final class ClientTasks {
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(1, Integer.getInteger("studentmanager.client.maxConcurrentCalls", 8)),
+            Thread.ofVirtual().name("client-task-", 0).factory());
+
+    // Ostatnie zadanie danego rodzaju - używane tylko z wątku JavaFX
+    private static final Map<String, Task<?>> LATEST = new HashMap<>();
+
+    // Trwające wywołania - identyczne żądanie czeka na wynik już wysłanego
+    private static final ConcurrentHashMap<Object, CompletableFuture<Object>> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    private ClientTasks() {}
+
+    public static void run(Task<?> task) {
+        EXECUTOR.execute(task);
+    }
+
+    public static void run(Runnable action) {
+        EXECUTOR.execute(action);
+    }
+
+    // Uruchamia zadanie i anuluje poprzednie o tym samym kluczu - jego wynik nie trafi już do widoku.
+    // Wątek nie jest przerywany: przerwanie wątku wirtualnego w trakcie odczytu z gniazda zamknęłoby
+    // połączenie RMI. Zadanie jeszcze czekające w kolejce w ogóle się nie wykona.
+    public static void submitLatest(String key, Task<?> task) {
+        Task<?> previous = LATEST.put(key, task);
+        if (previous != null && previous != task) previous.cancel(false);
+        task.stateProperty().addListener((observable, oldState, newState) -> {
+            if (task.isDone() && LATEST.get(key) == task) LATEST.remove(key);
+        });
+        run(task);
+    }
+
+    // Wywołanie z wątku w tle; takie samo wywołanie (równy klucz) w toku jest współdzielone zamiast wysyłane ponownie
+    @SuppressWarnings("unchecked")
+    public static <T> T coalesce(Object key, Callable<T> call) throws Exception {
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        CompletableFuture<Object> existing = IN_FLIGHT.putIfAbsent(key, own);
+        if (existing != null) {
+            try {
+                return (T) existing.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+        try {
+            T result = call.call();
+            own.complete(result);
+            return result;
+        } catch (Throwable e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            IN_FLIGHT.remove(key, own);
+        }
+    }
+}
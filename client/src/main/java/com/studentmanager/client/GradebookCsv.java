@@ -0,0 +1,199 @@
+package com.studentmanager.client;
+
+import com.studentmanager.shared.*;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Eksport i import dziennika ocen w CSV (UTF-8, separator ';', przecinek dziesiętny dozwolony przy imporcie).
+// Plik jest czytany i zapisywany paczkami - w pamięci klienta jest najwyżej jedna paczka wierszy, nie cały dziennik.
+// Jeden wiersz to student i jedna jego ocena; student bez ocen ma puste kolumny przedmiotu i oceny.
+public final class GradebookCsv {
+    private static final int CHUNK_SIZE = 1000;
+    private static final char SEPARATOR = ';';
+    private static final String HEADER = "nr_indeksu;imie;nazwisko;przedmiot;ocena";
+    // Ile błędów importu pokazujemy użytkownikowi
+    private static final int MAX_ERRORS = 20;
+
+    private GradebookCsv() {}
+
+    // Wynik importu bez listy wszystkich wierszy - przy dużym pliku trzymamy tylko liczniki i pierwsze błędy
+    public static class Summary {
+        private int succeeded;
+        private int failed;
+        private final List<String> errors = new ArrayList<>();
+
+        private void failed(long line, String error) {
+            failed++;
+            if (errors.size() < MAX_ERRORS) errors.add("wiersz " + line + ": " + error);
+        }
+
+        public int getSucceeded() { return succeeded; }
+        public int getFailed() { return failed; }
+        public List<String> getErrors() { return errors; }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("Zaimportowano " + succeeded + "/" + (succeeded + failed) + " wierszy");
+            for (String error : errors) sb.append('\n').append(error);
+            if (failed > errors.size()) sb.append("\n...");
+            return sb.toString();
+        }
+    }
+
+    // Zwraca liczbę zapisanych wierszy
+    public static long export(StudentService service, Path file) throws IOException {
+        GradebookExport export = service.exportGradebook(CHUNK_SIZE);
+        boolean finished = false;
+        long count = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(HEADER);
+            out.newLine();
+            List<GradebookRow> chunk;
+            while (!(chunk = export.nextChunk()).isEmpty()) {
+                for (GradebookRow row : chunk) {
+                    out.write(quote(row.getIndexNumber()));
+                    out.write(SEPARATOR);
+                    out.write(quote(row.getFirstName()));
+                    out.write(SEPARATOR);
+                    out.write(quote(row.getLastName()));
+                    out.write(SEPARATOR);
+                    out.write(quote(row.getCourseName()));
+                    out.write(SEPARATOR);
+                    if (row.getValue() != null) out.write(row.getValue().toString());
+                    out.newLine();
+                }
+                count += chunk.size();
+            }
+            // Pusta paczka - serwer sam zamknął kursor
+            finished = true;
+        } finally {
+            if (!finished) closeQuietly(export::close);
+        }
+        return count;
+    }
+
+    public static Summary importFile(StudentService service, Path file) throws IOException {
+        Summary summary = new Summary();
+        GradebookImport sink = service.importGradebook();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<GradebookRow> chunk = new ArrayList<>(CHUNK_SIZE);
+            // Numery wierszy pliku dla wierszy w paczce - raport serwera numeruje tylko wysłane wiersze
+            List<Long> lines = new ArrayList<>(CHUNK_SIZE);
+            int sent = 0;
+            long lineNumber = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1) {
+                    // Excel zapisuje UTF-8 ze znacznikiem BOM
+                    if (line.startsWith("\uFEFF")) line = line.substring(1);
+                    if (line.equalsIgnoreCase(HEADER)) continue;
+                }
+                if (line.isBlank()) continue;
+                try {
+                    chunk.add(parse(line));
+                    lines.add(lineNumber);
+                } catch (IllegalArgumentException e) {
+                    summary.failed(lineNumber, e.getMessage());
+                }
+                if (chunk.size() == CHUNK_SIZE) {
+                    sent += send(sink, chunk, lines, sent, summary);
+                    chunk.clear();
+                    lines.clear();
+                }
+            }
+            if (!chunk.isEmpty()) send(sink, chunk, lines, sent, summary);
+        } finally {
+            closeQuietly(sink::close);
+        }
+        return summary;
+    }
+
+    private static int send(GradebookImport sink, List<GradebookRow> chunk, List<Long> lines, int sent, Summary summary) throws RemoteException {
+        ImportReport report = sink.write(new ArrayList<>(chunk));
+        for (ImportRowResult result : report.getRows()) {
+            if (result.isSuccess()) summary.succeeded++;
+            else summary.failed(lines.get(result.getRow() - sent), result.getError());
+        }
+        return chunk.size();
+    }
+
+    private static GradebookRow parse(String line) {
+        List<String> fields = split(line);
+        if (fields.size() != 5) throw new IllegalArgumentException("Oczekiwano 5 kolumn, jest " + fields.size());
+        String value = fields.get(4).trim();
+        Double grade = null;
+        if (!value.isEmpty()) {
+            try {
+                grade = Double.parseDouble(value.replace(',', '.'));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Niepoprawna ocena: " + value);
+            }
+        }
+        return new GradebookRow(emptyToNull(fields.get(0)), emptyToNull(fields.get(1)), emptyToNull(fields.get(2)),
+                emptyToNull(fields.get(3)), grade);
+    }
+
+    // Podział wiersza z obsługą pól w cudzysłowach ("" wewnątrz oznacza cudzysłów); pola nie mogą zawierać nowej linii
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>(5);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == SEPARATOR) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("Niezamknięty cudzysłów");
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String quote(String value) {
+        if (value == null) return "";
+        if (value.indexOf(SEPARATOR) < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"").replace('\n', ' ').replace('\r', ' ') + '"';
+    }
+
+    private static String emptyToNull(String value) {
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private interface RemoteClose {
+        void close() throws RemoteException;
+    }
+
+    private static void closeQuietly(RemoteClose close) {
+        try {
+            close.close();
+        } catch (RemoteException ignored) {
+            // obiekt zdalny już zamknięty albo połączenie zerwane - serwer zwolni go sam (Unreferenced)
+        }
+    }
+}
@@ -1,7 +1,13 @@
 package com.studentmanager.client;
 
+import com.studentmanager.shared.ChangeEvent;
+import com.studentmanager.shared.ChangeLog;
 import com.studentmanager.shared.GradeDTO;
 import com.studentmanager.shared.StudentDTO;
+import com.studentmanager.shared.StudentPage;
+import com.studentmanager.shared.StudentPageCursor;
+import com.studentmanager.shared.StudentSortKey;
+import javafx.animation.PauseTransition;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -14,16 +20,46 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
+import java.io.File;
 import java.io.IOException;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ManagementController {
+    private static final int PAGE_SIZE = 100;
+    // Ile wierszy przed końcem załadowanej listy zaczynamy pobierać następną stronę
+    private static final int PREFETCH_ROWS = 20;
+    // Ile wierszy nad i pod zaznaczonym pobieramy razem z jego ocenami
+    private static final int GRADE_PREFETCH_RADIUS = 5;
+    // Wyszukiwanie: maksymalna liczba wyników i opóźnienie po ostatnim naciśnięciu klawisza
+    private static final int SEARCH_LIMIT = 200;
+    private static final Duration SEARCH_DELAY = Duration.millis(250);
+    // Kolejność zgodna ze stronicowaniem po StudentSortKey.LAST_NAME (ORDER BY last_name, id w bazie).
+    // Nazwiska porównuje collation bazy - domyślnie polskie; "binary" dla baz z porządkiem bajtowym (H2, "C")
+    private static final Comparator<StudentDTO> STUDENT_ORDER = studentOrder(
+            System.getProperty("studentmanager.client.collation", "pl-PL"));
+
+    private static Comparator<StudentDTO> studentOrder(String collation) {
+        Comparator<String> names = "binary".equalsIgnoreCase(collation)
+                ? Comparator.naturalOrder()
+                : Collator.getInstance(Locale.forLanguageTag(collation))::compare;
+        return Comparator.comparing(StudentDTO::getLastName, names).thenComparing(StudentDTO::getId);
+    }
 
     // --- Tabela studentów ---
+    @FXML private TextField searchField;
     @FXML private TableView<StudentDTO> studentTable;
     @FXML private TableColumn<StudentDTO, String> firstnameCol;
     @FXML private TableColumn<StudentDTO, String> surnameCol;
@@ -37,16 +73,42 @@ public class ManagementController {
     // --- Przyciski ---
     @FXML private Button deleteStudentBtn;
     @FXML private Button deleteGradeBtn;
+    @FXML private Button exportCsvBtn;
+    @FXML private Button importCsvBtn;
+
+    // --- Stan stronicowania listy studentów ---
+    private StudentPageCursor nextCursor;
+    private boolean pageLoading;
+    private int listGeneration;
+
+    // Subskrypcja zmian z serwera; null - brak, wtedy po zmianach pobieramy dane od nowa
+    private ChangeSubscription subscription;
+    // Wersja danych serwera, od której pobieramy brakujące zmiany (0 - nieznana)
+    private long syncVersion;
+
+    // Oceny pobrane wcześniej (także sąsiedzi zaznaczenia) - pokazywane od razu, odświeżane po TTL
+    private final ClientGradeCache gradeCache = ClientGradeCache.fromSystemProperties();
+
+    // Aktualne zapytanie; null - tabela pokazuje pełną, stronicowaną listę
+    private String searchQuery;
+    private final PauseTransition searchDelay = new PauseTransition(SEARCH_DELAY);
+    private boolean gradePrefetchRunning;
 
     @FXML
     public void initialize() {
         configureColumns();
+        configureLazyLoading();
 
         studentTable.setPlaceholder(new Label("Ładowanie danych..."));
         gradeTable.setPlaceholder(new Label("Wybierz studenta, aby zobaczyć oceny"));
 
+        // Wyszukiwanie podczas pisania - zapytanie wysyłane dopiero po chwili przerwy
+        searchDelay.setOnFinished(e -> applySearch(searchField.getText()));
+        searchField.textProperty().addListener((observable, oldText, newText) -> searchDelay.playFromStart());
+
         // Pobranie listy studentów na starcie
         refreshStudentList();
+        subscribeToChanges();
 
         // Obsługa przycisków usuwania (aktywne tylko gdy coś zaznaczono)
         deleteStudentBtn.visibleProperty().bind(studentTable.getSelectionModel().selectedItemProperty().isNotNull());
@@ -72,57 +134,337 @@ public class ManagementController {
 
         nameCol.setCellValueFactory(cell -> new SimpleStringProperty(cell.getValue().getCourseName()));
         gradeCol.setCellValueFactory(cell -> new SimpleObjectProperty<>(cell.getValue().getValue()));
+
+        // Kolejność wyznacza serwer (strony doczytywane są na końcu listy)
+        firstnameCol.setSortable(false);
+        surnameCol.setSortable(false);
+        indCol.setSortable(false);
+    }
+
+    // Wiersz zbliżający się do końca załadowanej listy doczytuje następną stronę
+    private void configureLazyLoading() {
+        studentTable.setRowFactory(table -> new TableRow<>() {
+            @Override
+            protected void updateItem(StudentDTO item, boolean empty) {
+                super.updateItem(item, empty);
+                if (!empty && getIndex() >= studentTable.getItems().size() - PREFETCH_ROWS) {
+                    loadNextPage();
+                }
+            }
+        });
+    }
+
+    // --- Zmiany wysyłane przez serwer ---
+
+    private void subscribeToChanges() {
+        Task<ChangeSubscription> task = new Task<>() {
+            @Override
+            protected ChangeSubscription call() throws Exception {
+                return ChangeSubscription.open(ManagementController.this::applyChanges);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            subscription = task.getValue();
+            // Zmiany zatwierdzone między pobraniem listy a subskrypcją
+            if (syncVersion > 0) syncChanges();
+        });
+        // Bez subskrypcji klient działa dalej, odświeżając dane po własnych zmianach
+        task.setOnFailed(e -> e.getSource().getException().printStackTrace());
+        ClientTasks.run(task);
+    }
+
+    // Nakłada zmiany na załadowane tabele zamiast pobierać je ponownie
+    private void applyChanges(List<ChangeEvent> events) {
+        for (ChangeEvent event : events) {
+            StudentDTO selected = studentTable.getSelectionModel().getSelectedItem();
+            boolean selectedStudent = selected != null && selected.getId().equals(event.getStudentId());
+
+            if (event.getStudentId() != null) gradeCache.invalidate(event.getStudentId());
+            // Powiadomienia przesuwają wersję synchronizacji - po RESYNC pobieramy tylko zmiany od ostatniego pusha
+            if (syncVersion > 0) syncVersion = Math.max(syncVersion, event.getVersion());
+
+            switch (event.getType()) {
+                case RESYNC:
+                    syncChanges();
+                    return;
+                case STUDENT_ADDED:
+                    // Wyników wyszukiwania nie uzupełniamy - nie wiadomo, czy nowy student pasuje
+                    if (searchQuery == null) insertStudent(event.getStudent());
+                    break;
+                case STUDENT_REMOVED:
+                    studentTable.getItems().removeIf(s -> s.getId().equals(event.getStudentId()));
+                    break;
+                case GRADE_ADDED:
+                    if (selectedStudent) {
+                        gradeTable.getItems().removeIf(g -> g.getCourseName().equals(event.getCourseName()));
+                        gradeTable.getItems().add(event.getGrade());
+                    }
+                    break;
+                case GRADE_REMOVED:
+                    if (selectedStudent) {
+                        gradeTable.getItems().removeIf(g -> g.getCourseName().equals(event.getCourseName()));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    // Po utracie części powiadomień pobieramy tylko zmiany od ostatniej znanej wersji
+    private void syncChanges() {
+        if (syncVersion <= 0) {
+            refreshStudentList();
+            return;
+        }
+        int generation = listGeneration;
+        long since = syncVersion;
+        Task<ChangeLog> task = new Task<>() {
+            @Override
+            protected ChangeLog call() throws Exception {
+                return ClientConnection.getService().getStudentsChangedSince(since);
+            }
+        };
+
+        task.setOnSucceeded(e -> {
+            if (generation != listGeneration) return;
+            ChangeLog log = task.getValue();
+            if (log.isResync()) {
+                refreshStudentList();
+                return;
+            }
+            syncVersion = log.getVersion();
+            applyChanges(log.getEvents());
+        });
+        task.setOnFailed(e -> refreshStudentList());
+        ClientTasks.submitLatest("sync", task);
+    }
+
+    private void insertStudent(StudentDTO student) {
+        List<StudentDTO> items = studentTable.getItems();
+        if (items.stream().anyMatch(s -> s.getId().equals(student.getId()))) return;
+
+        int position = Collections.binarySearch(items, student, STUDENT_ORDER);
+        int insertAt = position >= 0 ? position : -position - 1;
+        // Student za końcem załadowanej części pojawi się przy doczytaniu kolejnej strony
+        if (insertAt == items.size() && nextCursor != null) return;
+        items.add(insertAt, student);
+    }
+
+    private void closeSubscription() {
+        ChangeSubscription current = subscription;
+        subscription = null;
+        if (current != null) ClientTasks.run(current::close);
     }
 
     // --- Pobieranie danych z serwera (Asynchronicznie) ---
 
     private void refreshStudentList() {
-        Task<List<StudentDTO>> task = new Task<>() {
+        listGeneration++;
+        syncVersion = 0;
+        gradeCache.clear();
+        if (searchQuery != null) {
+            runSearch(searchQuery);
+            return;
+        }
+        nextCursor = StudentPageCursor.first(StudentSortKey.LAST_NAME);
+        pageLoading = false;
+        studentTable.setItems(FXCollections.observableArrayList());
+        studentTable.setPlaceholder(new Label("Ładowanie danych..."));
+        loadNextPage();
+    }
+
+    private void loadNextPage() {
+        if (pageLoading || nextCursor == null) return;
+        pageLoading = true;
+
+        int generation = listGeneration;
+        StudentPageCursor cursor = nextCursor;
+        AtomicLong startVersion = new AtomicLong();
+        Task<StudentPage> task = new Task<>() {
             @Override
-            protected List<StudentDTO> call() throws Exception {
-                return ClientConnection.getService().getAllStudents();
+            protected StudentPage call() throws Exception {
+                // Wersja pobrana przed pierwszą stroną - późniejsze zmiany dostaniemy przez syncChanges()
+                if (cursor.isFirst()) {
+                    startVersion.set(ClientConnection.getService().getStudentsChangedSince(0).getVersion());
+                }
+                return ClientConnection.getService().getStudentsPage(cursor, PAGE_SIZE);
             }
         };
 
         task.setOnSucceeded(e -> {
-            studentTable.setItems(FXCollections.observableArrayList(task.getValue()));
+            // Wynik z listy sprzed odświeżenia jest ignorowany
+            if (generation != listGeneration) return;
+            pageLoading = false;
+            StudentPage page = task.getValue();
+            if (cursor.isFirst()) syncVersion = startVersion.get();
+            nextCursor = page.getNextCursor();
+            studentTable.getItems().addAll(page.getStudents());
             if (studentTable.getItems().isEmpty()) {
                 studentTable.setPlaceholder(new Label("Brak studentów w bazie"));
             }
         });
 
         task.setOnFailed(e -> {
+            if (generation != listGeneration) return;
+            pageLoading = false;
             Alert alert = new Alert(Alert.AlertType.ERROR, "Nie udało się pobrać listy studentów.");
             alert.show();
             e.getSource().getException().printStackTrace();
         });
 
-        new Thread(task).start();
+        ClientTasks.submitLatest("studentPage", task);
     }
 
-    private void fetchGradesForStudent(Long studentId) {
-        gradeTable.setPlaceholder(new Label("Pobieranie ocen..."));
-        
-        Task<List<GradeDTO>> task = new Task<>() {
+    // --- Wyszukiwanie ---
+
+    private void applySearch(String text) {
+        String query = text == null ? "" : text.trim();
+        if (query.isEmpty()) {
+            if (searchQuery != null) {
+                searchQuery = null;
+                refreshStudentList();
+            }
+            return;
+        }
+        if (query.equals(searchQuery)) return;
+        searchQuery = query;
+        runSearch(query);
+    }
+
+    private void runSearch(String query) {
+        listGeneration++;
+        nextCursor = null;
+        pageLoading = false;
+        int generation = listGeneration;
+        Task<List<StudentDTO>> task = new Task<>() {
             @Override
-            protected List<GradeDTO> call() throws Exception {
-                return ClientConnection.getService().getGradesForStudent(studentId);
+            protected List<StudentDTO> call() throws Exception {
+                return ClientConnection.getService().searchStudents(query, SEARCH_LIMIT);
             }
         };
 
         task.setOnSucceeded(e -> {
-            gradeTable.setItems(FXCollections.observableArrayList(task.getValue()));
-            if (gradeTable.getItems().isEmpty()) {
-                gradeTable.setPlaceholder(new Label("Brak ocen dla tego studenta"));
+            if (generation != listGeneration) return;
+            studentTable.setItems(FXCollections.observableArrayList(task.getValue()));
+            if (studentTable.getItems().isEmpty()) {
+                studentTable.setPlaceholder(new Label("Brak studentów pasujących do: " + query));
             }
         });
+        task.setOnFailed(e -> {
+            if (generation != listGeneration) return;
+            studentTable.setPlaceholder(new Label("Błąd wyszukiwania"));
+            e.getSource().getException().printStackTrace();
+        });
+
+        // Ten sam klucz co strony listy - nowe zapytanie anuluje poprzednie i trwające doczytywanie
+        ClientTasks.submitLatest("studentPage", task);
+    }
+
+    private void fetchGradesForStudent(Long studentId) {
+        // Oceny z cache pokazujemy od razu, nawet przeterminowane (stale-while-revalidate)
+        List<GradeDTO> cached = gradeCache.get(studentId);
+        if (cached != null) {
+            showGrades(cached);
+            if (gradeCache.isFresh(studentId)) {
+                prefetchNeighbourGrades(studentId);
+                return;
+            }
+        } else {
+            gradeTable.setPlaceholder(new Label("Pobieranie ocen..."));
+        }
+
+        // Zaznaczony student i jego sąsiedzi w jednym wywołaniu
+        List<Long> ids = new ArrayList<>();
+        ids.add(studentId);
+        for (Long id : neighbourIds(studentId, GRADE_PREFETCH_RADIUS)) {
+            if (!id.equals(studentId) && !gradeCache.isFresh(id)) ids.add(id);
+        }
+        long stamp = gradeCache.stamp();
+        Task<Map<Long, List<GradeDTO>>> task = new Task<>() {
+            @Override
+            protected Map<Long, List<GradeDTO>> call() throws Exception {
+                // Ten sam zestaw id w toku (np. szybkie przełączanie zaznaczenia) - jedno wywołanie serwera
+                return ClientTasks.coalesce(List.of("getGradesForStudents", ids),
+                        () -> ClientConnection.getService().getGradesForStudents(ids));
+            }
+        };
+
+        task.setOnSucceeded(e -> {
+            gradeCache.putAll(task.getValue(), stamp);
+            // Wynik dla studenta, który nie jest już zaznaczony, zostaje tylko w cache
+            List<GradeDTO> grades = task.getValue().get(studentId);
+            if (isSelected(studentId) && !ClientGradeCache.sameGrades(cached, grades)) showGrades(grades);
+        });
 
         task.setOnFailed(e -> {
-            gradeTable.setPlaceholder(new Label("Błąd pobierania ocen"));
+            // Przy nieudanym odświeżeniu zostają pokazane oceny z cache
+            if (isSelected(studentId) && cached == null) gradeTable.setPlaceholder(new Label("Błąd pobierania ocen"));
             e.getSource().getException().printStackTrace();
         });
 
-        new Thread(task).start();
+        ClientTasks.submitLatest("grades", task);
+    }
+
+    // W tle dociąga oceny sąsiadów, których jeszcze nie mamy (np. po kilku krokach strzałką)
+    private void prefetchNeighbourGrades(Long studentId) {
+        if (gradePrefetchRunning) return;
+        List<Long> ids = new ArrayList<>();
+        for (Long id : neighbourIds(studentId, GRADE_PREFETCH_RADIUS)) {
+            if (!gradeCache.isFresh(id)) ids.add(id);
+        }
+        if (ids.isEmpty()) return;
+
+        gradePrefetchRunning = true;
+        long stamp = gradeCache.stamp();
+        Task<Map<Long, List<GradeDTO>>> task = new Task<>() {
+            @Override
+            protected Map<Long, List<GradeDTO>> call() throws Exception {
+                // Ten sam zestaw id w toku (np. szybkie przełączanie zaznaczenia) - jedno wywołanie serwera
+                return ClientTasks.coalesce(List.of("getGradesForStudents", ids),
+                        () -> ClientConnection.getService().getGradesForStudents(ids));
+            }
+        };
+        task.setOnSucceeded(e -> {
+            gradePrefetchRunning = false;
+            gradeCache.putAll(task.getValue(), stamp);
+        });
+        // Nieudany prefetch nie jest błędem - oceny pobierze zwykłe zaznaczenie
+        task.setOnFailed(e -> gradePrefetchRunning = false);
+        ClientTasks.run(task);
+    }
+
+    // Id studentów z wierszy [pozycja - radius, pozycja + radius] wokół podanego studenta
+    private List<Long> neighbourIds(Long studentId, int radius) {
+        List<StudentDTO> items = studentTable.getItems();
+        int position = -1;
+        StudentDTO selected = studentTable.getSelectionModel().getSelectedItem();
+        if (selected != null && selected.getId().equals(studentId)) {
+            position = studentTable.getSelectionModel().getSelectedIndex();
+        }
+        if (position < 0) {
+            for (int i = 0; i < items.size() && position < 0; i++) {
+                if (items.get(i).getId().equals(studentId)) position = i;
+            }
+        }
+        List<Long> ids = new ArrayList<>();
+        if (position < 0) return ids;
+        for (int i = Math.max(0, position - radius); i <= Math.min(items.size() - 1, position + radius); i++) {
+            ids.add(items.get(i).getId());
+        }
+        return ids;
+    }
+
+    private boolean isSelected(Long studentId) {
+        StudentDTO selected = studentTable.getSelectionModel().getSelectedItem();
+        return selected != null && selected.getId().equals(studentId);
+    }
+
+    private void showGrades(List<GradeDTO> grades) {
+        gradeTable.setItems(FXCollections.observableArrayList(grades));
+        if (gradeTable.getItems().isEmpty()) {
+            gradeTable.setPlaceholder(new Label("Brak ocen dla tego studenta"));
+        }
     }
 
     // --- Akcje Użytkownika ---
@@ -181,9 +523,11 @@ public class ManagementController {
                     return null;
                 }
             };
-            task.setOnSucceeded(e -> refreshStudentList());
+            task.setOnSucceeded(e -> {
+                if (subscription == null) refreshStudentList();
+            });
             task.setOnFailed(e -> new Alert(Alert.AlertType.ERROR, "Błąd dodawania: " + e.getSource().getException().getMessage()).show());
-            new Thread(task).start();
+            ClientTasks.run(task);
         });
     }
 
@@ -238,10 +582,13 @@ public class ManagementController {
                     return null;
                 }
             };
-            // Po dodaniu odświeżamy tabelę ocen dla aktualnie wybranego studenta
-            task.setOnSucceeded(e -> fetchGradesForStudent(selectedStudent.getId()));
+            // Po dodaniu odświeżamy tabelę ocen (przy subskrypcji zrobi to zdarzenie z serwera)
+            task.setOnSucceeded(e -> {
+                gradeCache.invalidate(selectedStudent.getId());
+                if (subscription == null) fetchGradesForStudent(selectedStudent.getId());
+            });
             task.setOnFailed(e -> new Alert(Alert.AlertType.ERROR, "Błąd dodawania oceny: " + e.getSource().getException().getMessage()).show());
-            new Thread(task).start();
+            ClientTasks.run(task);
         });
     }
 
@@ -261,10 +608,13 @@ public class ManagementController {
                     }
                 };
                 task.setOnSucceeded(e -> {
-                    refreshStudentList();
-                    gradeTable.getItems().clear();
+                    gradeCache.invalidate(selected.getId());
+                    if (subscription == null) {
+                        refreshStudentList();
+                        gradeTable.getItems().clear();
+                    }
                 });
-                new Thread(task).start();
+                ClientTasks.run(task);
             }
         });
     }
@@ -285,13 +635,68 @@ public class ManagementController {
                         return null;
                     }
                 };
-                task.setOnSucceeded(e -> fetchGradesForStudent(selectedStudent.getId()));
-                new Thread(task).start();
+                task.setOnSucceeded(e -> {
+                    gradeCache.invalidate(selectedStudent.getId());
+                    if (subscription == null) fetchGradesForStudent(selectedStudent.getId());
+                });
+                ClientTasks.run(task);
             }
         });
     }
-    
+
+    @FXML
+    public void exportCsvAction() {
+        FileChooser chooser = csvChooser("Eksport dziennika");
+        chooser.setInitialFileName("dziennik.csv");
+        File file = chooser.showSaveDialog(studentTable.getScene().getWindow());
+        if (file == null) return;
+
+        Task<Long> task = new Task<>() {
+            @Override
+            protected Long call() throws Exception {
+                return GradebookCsv.export(ClientConnection.getService(), file.toPath());
+            }
+        };
+        exportCsvBtn.disableProperty().bind(task.runningProperty());
+        task.setOnSucceeded(e -> new Alert(Alert.AlertType.INFORMATION, "Zapisano " + task.getValue() + " wierszy do " + file.getName()).show());
+        task.setOnFailed(e -> new Alert(Alert.AlertType.ERROR, "Błąd eksportu: " + task.getException().getMessage()).show());
+        ClientTasks.run(task);
+    }
+
+    @FXML
+    public void importCsvAction() {
+        File file = csvChooser("Import dziennika").showOpenDialog(studentTable.getScene().getWindow());
+        if (file == null) return;
+
+        Task<GradebookCsv.Summary> task = new Task<>() {
+            @Override
+            protected GradebookCsv.Summary call() throws Exception {
+                return GradebookCsv.importFile(ClientConnection.getService(), file.toPath());
+            }
+        };
+        importCsvBtn.disableProperty().bind(task.runningProperty());
+        task.setOnSucceeded(e -> {
+            // Przy subskrypcji zmiany przyjdą jako zdarzenia, bez niej odświeżamy widok sami
+            if (subscription == null) {
+                gradeCache.clear();
+                refreshStudentList();
+                gradeTable.getItems().clear();
+            }
+            new Alert(Alert.AlertType.INFORMATION, task.getValue().toString()).show();
+        });
+        task.setOnFailed(e -> new Alert(Alert.AlertType.ERROR, "Błąd importu: " + task.getException().getMessage()).show());
+        ClientTasks.run(task);
+    }
+
+    private static FileChooser csvChooser(String title) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle(title);
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv"));
+        return chooser;
+    }
+
     public void goBackToMenuBtnRelease(ActionEvent event) throws IOException {
+        closeSubscription();
         Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/intro.fxml")));
         Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
         Scene scene = new Scene(root);
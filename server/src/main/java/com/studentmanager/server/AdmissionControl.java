@@ -0,0 +1,227 @@
+package com.studentmanager.server;
+
+import java.rmi.RemoteException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Kontrola przyjmowania wywołań przed każdą metodą StudentService (admission.*).
+// RMI tworzy wątek na każde równoczesne wywołanie, więc bez limitu nagły napływ klientów wyczerpuje pulę połączeń
+// i pamięć. Odczyty i zapisy mają osobne limity równoczesnych wywołań; nadmiarowe czekają w kolejkach klientów
+// (ClientIdentity), obsługiwanych po kolei - klient z setką żądań nie blokuje pozostałych. Gdy kolejka jest pełna
+// albo czas oczekiwania minie, wywołanie od razu kończy się RemoteException, zamiast czekać na pulę połączeń.
+final class AdmissionControl {
+    // Miejsce zajęte przez wywołanie - zwalniane po jego zakończeniu
+    interface Permit {
+        void release();
+    }
+
+    private static final Permit NONE = () -> {};
+
+    // Limit jednej klasy operacji (odczyty albo zapisy)
+    static final class Limiter {
+        private static final class Waiter {
+            final Condition admittedCondition;
+            boolean admitted;
+
+            Waiter(Condition condition) {
+                this.admittedCondition = condition;
+            }
+        }
+
+        private final String name;
+        private final String label;
+        private final int maxConcurrent;
+        private final int maxQueued;
+        private final int maxQueuedPerClient;
+        private final long timeoutNanos;
+        private final Permit permit = this::release;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        // Kolejki oczekujących per klient; kolejność wpisów to kolejność obsługi klientów (round robin)
+        private final LinkedHashMap<String, ArrayDeque<Waiter>> queues = new LinkedHashMap<>();
+        private int active;
+        private int queued;
+
+        private final LongAdder admitted = new LongAdder();
+        private final LongAdder waited = new LongAdder();
+        private final LongAdder waitMicros = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+
+        Limiter(String name, String label, int maxConcurrent, int maxQueued, int maxQueuedPerClient, long timeoutMillis) {
+            this.name = name;
+            this.label = label;
+            this.maxConcurrent = Math.max(1, maxConcurrent);
+            this.maxQueued = Math.max(0, maxQueued);
+            this.maxQueuedPerClient = Math.max(1, maxQueuedPerClient);
+            this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMillis));
+        }
+
+        Permit acquire(String client) throws RemoteException {
+            lock.lock();
+            try {
+                // Wolne miejsce i nikt nie czeka - bez kolejki
+                if (active < maxConcurrent && queued == 0) {
+                    active++;
+                    admitted.increment();
+                    return permit;
+                }
+                if (queued >= maxQueued) {
+                    rejected.increment();
+                    throw new RemoteException("Serwer przeciążony: kolejka " + label + " jest pełna, spróbuj ponownie później");
+                }
+                ArrayDeque<Waiter> queue = queues.get(client);
+                if (queue != null && queue.size() >= maxQueuedPerClient) {
+                    rejected.increment();
+                    throw new RemoteException("Serwer przeciążony: za dużo oczekujących " + label + " tego klienta");
+                }
+                if (queue == null) {
+                    queue = new ArrayDeque<>();
+                    queues.put(client, queue);
+                }
+                Waiter waiter = new Waiter(lock.newCondition());
+                queue.add(waiter);
+                queued++;
+
+                long start = System.nanoTime();
+                long remaining = timeoutNanos;
+                try {
+                    while (!waiter.admitted && remaining > 0) {
+                        remaining = waiter.admittedCondition.awaitNanos(remaining);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (!waiter.admitted) {
+                    remove(client, waiter);
+                    timeouts.increment();
+                    throw new RemoteException("Serwer przeciążony: przekroczono czas oczekiwania w kolejce " + label
+                            + " (" + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms)");
+                }
+                admitted.increment();
+                waited.increment();
+                waitMicros.add((System.nanoTime() - start) / 1000);
+                return permit;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void remove(String client, Waiter waiter) {
+            ArrayDeque<Waiter> queue = queues.get(client);
+            if (queue != null && queue.remove(waiter)) {
+                queued--;
+                if (queue.isEmpty()) queues.remove(client);
+            }
+        }
+
+        // Zwolnione miejsce przechodzi wprost na pierwszego oczekującego kolejnego klienta
+        private void release() {
+            lock.lock();
+            try {
+                Iterator<Map.Entry<String, ArrayDeque<Waiter>>> clients = queues.entrySet().iterator();
+                if (!clients.hasNext()) {
+                    active--;
+                    return;
+                }
+                Map.Entry<String, ArrayDeque<Waiter>> next = clients.next();
+                clients.remove();
+                Waiter waiter = next.getValue().poll();
+                queued--;
+                // Klient z dalszymi żądaniami wraca na koniec kolejki klientów
+                if (!next.getValue().isEmpty()) queues.put(next.getKey(), next.getValue());
+                waiter.admitted = true;
+                waiter.admittedCondition.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void addGauges(Map<String, Number> gauges) {
+            String prefix = "admission." + name + ".";
+            lock.lock();
+            try {
+                gauges.put(prefix + "active", active);
+                gauges.put(prefix + "queued", queued);
+                gauges.put(prefix + "queuedClients", queues.size());
+            } finally {
+                lock.unlock();
+            }
+            gauges.put(prefix + "admitted", admitted.sum());
+            gauges.put(prefix + "rejected", rejected.sum());
+            gauges.put(prefix + "timeouts", timeouts.sum());
+            long waitedCount = waited.sum();
+            gauges.put(prefix + "meanWaitMicros", waitedCount == 0 ? 0 : waitMicros.sum() / waitedCount);
+        }
+    }
+
+    private final Limiter reads;
+    private final Limiter writes;
+    // addGrade/removeGrade przy grades.groupCommit.enabled - null bez grupowych transakcji
+    private final Limiter groupCommit;
+
+    private AdmissionControl(Limiter reads, Limiter writes, Limiter groupCommit) {
+        this.reads = reads;
+        this.writes = writes;
+        this.groupCommit = groupCommit;
+    }
+
+    // null, gdy admission.enabled=false. Domyślne limity zależą od wielkości puli połączeń bazy.
+    static AdmissionControl configure(Properties fileProps) {
+        if (!Boolean.parseBoolean(fileProps.getProperty("admission.enabled", "true"))) return null;
+        int poolSize = Integer.parseInt(fileProps.getProperty("db.pool.maxSize", "10"));
+        int maxQueued = Integer.parseInt(fileProps.getProperty("admission.maxQueued", "200"));
+        int maxQueuedPerClient = Integer.parseInt(fileProps.getProperty("admission.maxQueuedPerClient", "50"));
+        long timeoutMillis = Long.parseLong(fileProps.getProperty("admission.queueTimeoutMs", "2000"));
+        // Część odczytów nie sięga do bazy (cache, indeks, statystyki), więc odczytów może być więcej niż połączeń
+        int readLimit = Integer.parseInt(fileProps.getProperty("admission.reads.maxConcurrent", String.valueOf(2 * poolSize)));
+        int writeLimit = Integer.parseInt(fileProps.getProperty("admission.writes.maxConcurrent", String.valueOf(poolSize)));
+        // Oceny w grupowych transakcjach czekają na zapis grupy bez połączenia z puli (grupę zapisuje jeden wątek),
+        // więc limit zależny od puli ograniczałby grupę do writeLimit ocen zamiast grades.groupCommit.maxBatch.
+        // Mają osobny limit - domyślnie rozmiar kolejki GradeWritePipeline.
+        Limiter groupCommit = null;
+        if (Boolean.parseBoolean(fileProps.getProperty("grades.groupCommit.enabled", "false"))) {
+            int groupLimit = Integer.parseInt(fileProps.getProperty("admission.groupCommit.maxConcurrent",
+                    fileProps.getProperty("grades.groupCommit.queueSize", "10000")));
+            groupCommit = new Limiter("groupCommit", "zapisów ocen", groupLimit, maxQueued, maxQueuedPerClient, timeoutMillis);
+        }
+        System.out.println("Kontrola przyjmowania: odczyty " + readLimit + ", zapisy " + writeLimit
+                + (groupCommit != null ? ", oceny " + groupCommit.maxConcurrent : "")
+                + " równocześnie, kolejka " + maxQueued + " (" + maxQueuedPerClient + " na klienta)");
+        return new AdmissionControl(
+                new Limiter("reads", "odczytów", readLimit, maxQueued, maxQueuedPerClient, timeoutMillis),
+                new Limiter("writes", "zapisów", writeLimit, maxQueued, maxQueuedPerClient, timeoutMillis),
+                groupCommit);
+    }
+
+    Limiter reads() {
+        return reads;
+    }
+
+    Limiter writes() {
+        return writes;
+    }
+
+    // Limit addGrade/removeGrade: osobny przy grupowych transakcjach, inaczej limit zapisów
+    Limiter gradeWrites() {
+        return groupCommit != null ? groupCommit : writes;
+    }
+
+    // limiter == null - metoda bez limitu
+    static Permit enter(Limiter limiter) throws RemoteException {
+        return limiter == null ? NONE : limiter.acquire(ClientIdentity.current());
+    }
+
+    void addGauges(Map<String, Number> gauges) {
+        reads.addGauges(gauges);
+        writes.addGauges(gauges);
+        if (groupCommit != null) groupCommit.addGauges(gauges);
+    }
+}
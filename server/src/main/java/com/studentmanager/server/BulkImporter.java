@@ -0,0 +1,360 @@
+package com.studentmanager.server;
+
+import com.studentmanager.shared.*;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.*;
+
+// Import masowy studentów i ocen.
+// Wiersze są zapisywane paczkami w osobnych transakcjach (insert'y batchowane przez Hibernate).
+// Jeśli paczka się nie powiedzie, jest powtarzana wiersz po wierszu, żeby błąd dotyczył tylko złych wierszy.
+class BulkImporter {
+    private final EntityManagerFactory emf;
+    private final EntityDirectory directory;
+    private final DataChangeListener changeListener;
+    private final ChangeTracker changeTracker;
+    private final int chunkSize;
+    private final int batchSize;
+
+    BulkImporter(EntityManagerFactory emf, EntityDirectory directory, DataChangeListener changeListener,
+                 ChangeTracker changeTracker, int chunkSize, int batchSize) {
+        this.emf = emf;
+        this.directory = directory;
+        this.changeListener = changeListener;
+        this.changeTracker = changeTracker;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    // Wiersz wejściowy razem z jego numerem w przesłanej liście
+    private static class Row<T> {
+        final int index;
+        final T value;
+
+        Row(int index, T value) {
+            this.index = index;
+            this.value = value;
+        }
+    }
+
+    // --- Studenci ---
+
+    ImportReport importStudents(List<StudentDTO> students) {
+        ImportRowResult[] results = new ImportRowResult[students.size()];
+        Set<String> seenIndexes = new HashSet<>();
+        List<Row<StudentDTO>> valid = new ArrayList<>();
+
+        for (int i = 0; i < students.size(); i++) {
+            StudentDTO dto = students.get(i);
+            if (dto == null || isBlank(dto.getFirstName()) || isBlank(dto.getLastName()) || isBlank(dto.getIndexNumber())) {
+                results[i] = ImportRowResult.failed(i, "Brak imienia, nazwiska lub numeru indeksu");
+            } else if (!seenIndexes.add(dto.getIndexNumber())) {
+                results[i] = ImportRowResult.failed(i, "Powtórzony numer indeksu w imporcie: " + dto.getIndexNumber());
+            } else {
+                valid.add(new Row<>(i, dto));
+            }
+        }
+
+        runChunked(valid, results, this::insertStudents);
+        return new ImportReport(Arrays.asList(results));
+    }
+
+    private Map<Integer, ImportRowResult> insertStudents(EntityManager em, long version, List<Row<StudentDTO>> rows, List<Runnable> afterCommit) {
+        Map<Integer, ImportRowResult> results = new HashMap<>();
+
+        List<StudentDTO> added = new ArrayList<>();
+        for (Row<StudentDTO> row : rows) {
+            StudentDTO dto = row.value;
+            if (directory.containsIndex(dto.getIndexNumber())) {
+                results.put(row.index, ImportRowResult.failed(row.index, "Numer indeksu już istnieje: " + dto.getIndexNumber()));
+                continue;
+            }
+            Student student = new Student(dto.getFirstName(), dto.getLastName(), dto.getIndexNumber());
+            student.setChangeVersion(version);
+            em.persist(student);
+            results.put(row.index, ImportRowResult.ok(row.index, student.getId()));
+            added.add(new StudentDTO(student.getId(), student.getFirstName(), student.getLastName(), student.getIndexNumber()));
+            flushBatch(em, added.size());
+        }
+        em.flush();
+
+        afterCommit.add(() -> added.forEach(changeListener::studentAdded));
+        return results;
+    }
+
+    // --- Oceny ---
+
+    ImportReport importGrades(List<GradeEntryDTO> grades) {
+        ImportRowResult[] results = new ImportRowResult[grades.size()];
+        Set<String> seenPairs = new HashSet<>();
+        List<Row<GradeEntryDTO>> valid = new ArrayList<>();
+
+        for (int i = 0; i < grades.size(); i++) {
+            GradeEntryDTO dto = grades.get(i);
+            if (dto == null || isBlank(dto.getIndexNumber()) || isBlank(dto.getCourseName()) || dto.getValue() == null) {
+                results[i] = ImportRowResult.failed(i, "Brak numeru indeksu, przedmiotu lub oceny");
+            } else if (!seenPairs.add(dto.getIndexNumber() + "\u0000" + dto.getCourseName())) {
+                results[i] = ImportRowResult.failed(i, "Powtórzona ocena w imporcie: " + dto);
+            } else {
+                valid.add(new Row<>(i, dto));
+            }
+        }
+
+        runChunked(valid, results, this::insertGrades);
+        return new ImportReport(Arrays.asList(results));
+    }
+
+    private Map<Integer, ImportRowResult> insertGrades(EntityManager em, long version, List<Row<GradeEntryDTO>> rows, List<Runnable> afterCommit) {
+        Map<Integer, ImportRowResult> results = new HashMap<>();
+
+        // Studentów i przedmioty rozwiązuje słownik, z bazy pobieramy tylko istniejące oceny (jedno zapytanie na paczkę)
+        Map<String, Long> studentIds = new HashMap<>();
+        for (Row<GradeEntryDTO> row : rows) {
+            Long studentId = directory.studentIdByIndex(row.value.getIndexNumber());
+            if (studentId != null) studentIds.put(row.value.getIndexNumber(), studentId);
+        }
+
+        Map<String, Course> newCourses = new HashMap<>();
+
+        Set<String> existingPairs = new HashSet<>();
+        if (!studentIds.isEmpty()) {
+            for (Object[] r : em.createQuery(
+                            "SELECT g.student.id, g.course.id FROM Grade g WHERE g.student.id IN :sids", Object[].class)
+                    .setParameter("sids", studentIds.values())
+                    .getResultList()) {
+                existingPairs.add(r[0] + ":" + r[1]);
+            }
+        }
+
+        List<Runnable> events = new ArrayList<>();
+        int persisted = 0;
+        for (Row<GradeEntryDTO> row : rows) {
+            GradeEntryDTO dto = row.value;
+            Long studentId = studentIds.get(dto.getIndexNumber());
+            if (studentId == null) {
+                results.put(row.index, ImportRowResult.failed(row.index, "Student nie istnieje: " + dto.getIndexNumber()));
+                continue;
+            }
+            Long courseId = directory.courseId(dto.getCourseName());
+            Course course = courseId != null ? em.getReference(Course.class, courseId) : newCourses.get(dto.getCourseName());
+            if (course == null) {
+                course = new Course(dto.getCourseName());
+                course.setChangeVersion(version);
+                em.persist(course);
+                newCourses.put(course.getName(), course);
+                Course created = course;
+                events.add(() -> changeListener.courseAdded(created.getId(), created.getName()));
+            } else if (courseId != null && existingPairs.contains(studentId + ":" + courseId)) {
+                results.put(row.index, ImportRowResult.failed(row.index, "Student ma już ocenę z przedmiotu " + dto.getCourseName()));
+                continue;
+            }
+
+            Grade grade = new Grade(dto.getValue(), em.getReference(Student.class, studentId), course);
+            grade.setChangeVersion(version);
+            em.persist(grade);
+            // Id z sekwencji jest znane od razu po persist
+            results.put(row.index, ImportRowResult.ok(row.index, grade.getId()));
+            GradeDTO added = new GradeDTO(grade.getId(), dto.getCourseName(), dto.getValue());
+            events.add(() -> changeListener.gradeAdded(studentId, added));
+            flushBatch(em, ++persisted);
+        }
+        em.flush();
+
+        afterCommit.addAll(events);
+        return results;
+    }
+
+    // --- Dziennik (import CSV) ---
+
+    // Wiersz dziennika tworzy brakującego studenta i przedmiot, a ocenę dodaje albo nadpisuje istniejącą.
+    // Dane istniejącego studenta (imię, nazwisko) nie są zmieniane.
+    ImportReport importGradebook(List<GradebookRow> rows) {
+        ImportRowResult[] results = new ImportRowResult[rows.size()];
+        Set<String> seenPairs = new HashSet<>();
+        List<Row<GradebookRow>> valid = new ArrayList<>();
+
+        for (int i = 0; i < rows.size(); i++) {
+            GradebookRow row = rows.get(i);
+            if (row == null || isBlank(row.getIndexNumber())) {
+                results[i] = ImportRowResult.failed(i, "Brak numeru indeksu");
+            } else if (isBlank(row.getCourseName()) != (row.getValue() == null)) {
+                results[i] = ImportRowResult.failed(i, "Podano przedmiot bez oceny albo ocenę bez przedmiotu");
+            } else if (!isBlank(row.getCourseName()) && !seenPairs.add(row.getIndexNumber() + "\u0000" + row.getCourseName())) {
+                results[i] = ImportRowResult.failed(i, "Powtórzona ocena w imporcie: " + row);
+            } else {
+                valid.add(new Row<>(i, row));
+            }
+        }
+
+        runChunked(valid, results, this::insertGradebook);
+        return new ImportReport(Arrays.asList(results));
+    }
+
+    private Map<Integer, ImportRowResult> insertGradebook(EntityManager em, long version, List<Row<GradebookRow>> rows, List<Runnable> afterCommit) {
+        Map<Integer, ImportRowResult> results = new HashMap<>();
+        List<Runnable> events = new ArrayList<>();
+
+        // Studenci ze słownika albo tworzeni w tej paczce (ten sam student ma zwykle kilka wierszy)
+        Map<String, Long> studentIds = new HashMap<>();
+        int persisted = 0;
+        for (Row<GradebookRow> row : rows) {
+            GradebookRow r = row.value;
+            if (studentIds.containsKey(r.getIndexNumber())) continue;
+            Long studentId = directory.studentIdByIndex(r.getIndexNumber());
+            if (studentId == null) {
+                if (isBlank(r.getFirstName()) || isBlank(r.getLastName())) continue;
+                Student student = new Student(r.getFirstName(), r.getLastName(), r.getIndexNumber());
+                student.setChangeVersion(version);
+                em.persist(student);
+                studentId = student.getId();
+                StudentDTO added = new StudentDTO(student.getId(), student.getFirstName(), student.getLastName(), student.getIndexNumber());
+                events.add(() -> changeListener.studentAdded(added));
+                flushBatch(em, ++persisted);
+            }
+            studentIds.put(r.getIndexNumber(), studentId);
+        }
+
+        // Istniejące oceny studentów z paczki jednym zapytaniem: para student:przedmiot -> {id oceny, wartość}
+        Map<String, Object[]> existing = new HashMap<>();
+        if (!studentIds.isEmpty()) {
+            for (Object[] g : em.createQuery(
+                            "SELECT g.id, g.student.id, g.course.id, g.value FROM Grade g WHERE g.student.id IN :sids", Object[].class)
+                    .setParameter("sids", studentIds.values())
+                    .getResultList()) {
+                existing.put(g[1] + ":" + g[2], g);
+            }
+        }
+
+        Map<String, Course> newCourses = new HashMap<>();
+        for (Row<GradebookRow> row : rows) {
+            GradebookRow r = row.value;
+            Long studentId = studentIds.get(r.getIndexNumber());
+            if (studentId == null) {
+                results.put(row.index, ImportRowResult.failed(row.index, "Nowy student wymaga imienia i nazwiska: " + r.getIndexNumber()));
+                continue;
+            }
+            if (isBlank(r.getCourseName())) {
+                results.put(row.index, ImportRowResult.ok(row.index, studentId));
+                continue;
+            }
+
+            Long courseId = directory.courseId(r.getCourseName());
+            Object[] current = courseId != null ? existing.get(studentId + ":" + courseId) : null;
+            if (current != null) {
+                Long gradeId = (Long) current[0];
+                if (!r.getValue().equals(current[3])) {
+                    em.createQuery("UPDATE Grade g SET g.value = :value, g.changeVersion = :version WHERE g.id = :id")
+                            .setParameter("value", r.getValue())
+                            .setParameter("version", version)
+                            .setParameter("id", gradeId)
+                            .executeUpdate();
+                    // gradeAdded z istniejącym id - odbiorcy traktują je jak zmianę oceny
+                    GradeDTO updated = new GradeDTO(gradeId, r.getCourseName(), r.getValue());
+                    events.add(() -> changeListener.gradeAdded(studentId, updated));
+                }
+                results.put(row.index, ImportRowResult.ok(row.index, gradeId));
+                continue;
+            }
+
+            Course course = courseId != null ? em.getReference(Course.class, courseId) : newCourses.get(r.getCourseName());
+            if (course == null) {
+                course = new Course(r.getCourseName());
+                course.setChangeVersion(version);
+                em.persist(course);
+                newCourses.put(course.getName(), course);
+                Course created = course;
+                events.add(() -> changeListener.courseAdded(created.getId(), created.getName()));
+            }
+            Grade grade = new Grade(r.getValue(), em.getReference(Student.class, studentId), course);
+            grade.setChangeVersion(version);
+            em.persist(grade);
+            results.put(row.index, ImportRowResult.ok(row.index, grade.getId()));
+            GradeDTO added = new GradeDTO(grade.getId(), r.getCourseName(), r.getValue());
+            events.add(() -> changeListener.gradeAdded(studentId, added));
+            flushBatch(em, ++persisted);
+        }
+        em.flush();
+
+        afterCommit.addAll(events);
+        return results;
+    }
+
+    // --- Wspólne ---
+
+    private interface ChunkWriter<T> {
+        Map<Integer, ImportRowResult> write(EntityManager em, long version, List<Row<T>> rows, List<Runnable> afterCommit);
+    }
+
+    private interface TransactionWork<R> {
+        R run(EntityManager em, long version, List<Runnable> afterCommit);
+    }
+
+    private <T> void runChunked(List<Row<T>> rows, ImportRowResult[] results, ChunkWriter<T> writer) {
+        for (int from = 0; from < rows.size(); from += chunkSize) {
+            List<Row<T>> chunk = rows.subList(from, Math.min(rows.size(), from + chunkSize));
+            try {
+                inTransaction((em, version, afterCommit) -> writer.write(em, version, chunk, afterCommit)).forEach((index, result) -> results[index] = result);
+            } catch (Exception chunkError) {
+                // Paczka wycofana - powtarzamy pojedynczo, każdy wiersz w swojej transakcji
+                for (Row<T> row : chunk) {
+                    try {
+                        inTransaction((em, version, afterCommit) -> writer.write(em, version, List.of(row), afterCommit)).forEach((index, result) -> results[index] = result);
+                    } catch (Exception rowError) {
+                        results[row.index] = ImportRowResult.failed(row.index, rootMessage(rowError));
+                    }
+                }
+            }
+        }
+    }
+
+    // Akcje z afterCommit (np. invalidacja cache) wykonywane są dopiero po udanym commit, poza obsługą jego błędów -
+    // wyjątek akcji jest tylko logowany, inaczej runChunked uznałby zatwierdzoną paczkę za wycofaną i wstawiał ją ponownie.
+    // Cała transakcja zapisuje wiersze z jedną wersją zmian.
+    private <R> R inTransaction(TransactionWork<R> work) {
+        long version = changeTracker.begin();
+        try {
+            List<Runnable> afterCommit = new ArrayList<>();
+            R result;
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                result = work.run(em, version, afterCommit);
+                em.getTransaction().commit();
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) em.getTransaction().rollback();
+                throw e;
+            } finally {
+                em.close();
+            }
+            for (Runnable action : afterCommit) {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    System.out.println("Błąd powiadamiania o zaimportowanych danych: " + e);
+                }
+            }
+            return result;
+        } finally {
+            changeTracker.end(version);
+        }
+    }
+
+    // Co batchSize wierszy wysyłamy batch do bazy i czyścimy kontekst, żeby nie rósł z rozmiarem importu
+    private void flushBatch(EntityManager em, int count) {
+        if (count % batchSize == 0) {
+            em.flush();
+            em.clear();
+        }
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null) root = root.getCause();
+        return root.getMessage() != null ? root.getMessage() : root.toString();
+    }
+}
@@ -0,0 +1,14 @@
+package com.studentmanager.server;
+
+import java.rmi.RemoteException;
+
+// Wywołania obiektów zdalnych tworzonych przez serwer (kursory eksportu i importu dziennika) - ta sama kontrola
+// przyjmowania i te same pomiary co metody StudentService (ServerImpl.timed)
+interface CallGate {
+    interface Call<T> {
+        T call() throws RemoteException;
+    }
+
+    // write=true - limit zapisów i okno read-your-writes repliki po udanym wywołaniu
+    <T> T call(String method, boolean write, Call<T> call) throws RemoteException;
+}
@@ -0,0 +1,195 @@
+package com.studentmanager.server;
+
+import com.studentmanager.shared.ChangeEvent;
+import com.studentmanager.shared.GradeDTO;
+import com.studentmanager.shared.StudentChangeListener;
+import com.studentmanager.shared.StudentDTO;
+
+import java.rmi.RemoteException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Rozsyła zmiany danych do subskrybentów.
+// Każdy subskrybent ma własną, ograniczoną kolejkę: zdarzenia dotyczące tego samego obiektu są scalane
+// (zostaje najnowsze), a po przepełnieniu kolejka zamieniana jest na jedno zdarzenie RESYNC.
+// Publikacja tylko odkłada zdarzenie do kolejek - wolny klient nie blokuje zapisów.
+// Zdarzenie niesie bezpieczną wersję ChangeTracker z chwili publikacji: zmiany do niej zostały już opublikowane
+// (zdarzenia są wysyłane przed ChangeTracker.end), więc klient może od niej kontynuować getStudentsChangedSince.
+class ChangeNotifier implements DataChangeListener {
+    // Tyle nieudanych dostarczeń z rzędu usuwa subskrybenta
+    private static final int MAX_FAILURES = 3;
+    // Opóźnienie ponownej próby po nieudanym dostarczeniu, podwajane z każdym kolejnym błędem
+    private static final long RETRY_DELAY_MS = 500;
+
+    private final Map<StudentChangeListener, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService delivery;
+    private final int queueSize;
+    private final LongSupplier safeVersion;
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+
+    ChangeNotifier(int threads, int queueSize, LongSupplier safeVersion) {
+        this.queueSize = Math.max(1, queueSize);
+        this.safeVersion = safeVersion;
+        AtomicInteger counter = new AtomicInteger();
+        this.delivery = Executors.newScheduledThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "change-notifier-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void subscribe(StudentChangeListener listener) {
+        subscribers.putIfAbsent(listener, new Subscriber(listener));
+    }
+
+    void unsubscribe(StudentChangeListener listener) {
+        subscribers.remove(listener);
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    long deliveredBatches() {
+        return delivered.sum();
+    }
+
+    long overflowCount() {
+        return overflows.sum();
+    }
+
+    void shutdown() {
+        delivery.shutdownNow();
+    }
+
+    private void publish(String key, ChangeEvent event) {
+        if (subscribers.isEmpty()) return;
+        ChangeEvent versioned = event.withVersion(safeVersion.getAsLong());
+        for (Subscriber subscriber : subscribers.values()) {
+            subscriber.enqueue(key, versioned);
+        }
+    }
+
+    @Override
+    public void studentAdded(StudentDTO student) {
+        publish("S:" + student.getId(), ChangeEvent.studentAdded(student));
+    }
+
+    @Override
+    public void studentRemoved(Long studentId) {
+        publish("S:" + studentId, ChangeEvent.studentRemoved(studentId));
+    }
+
+    @Override
+    public void courseAdded(Long courseId, String courseName) {
+        publish("C:" + courseName, ChangeEvent.courseAdded(courseName));
+    }
+
+    @Override
+    public void gradeAdded(Long studentId, GradeDTO grade) {
+        publish("G:" + studentId + ":" + grade.getCourseName(), ChangeEvent.gradeAdded(studentId, grade));
+    }
+
+    @Override
+    public void gradeRemoved(Long studentId, String courseName) {
+        publish("G:" + studentId + ":" + courseName, ChangeEvent.gradeRemoved(studentId, courseName));
+    }
+
+    private class Subscriber {
+        private final StudentChangeListener listener;
+        // Klucz obiektu -> najnowsze zdarzenie, w kolejności ostatniej zmiany
+        private final LinkedHashMap<String, ChangeEvent> pending = new LinkedHashMap<>();
+        private boolean resync;
+        private boolean scheduled;
+        private int failures;
+
+        Subscriber(StudentChangeListener listener) {
+            this.listener = listener;
+        }
+
+        synchronized void enqueue(String key, ChangeEvent event) {
+            if (resync) return;
+            if (event.getType() == ChangeEvent.Type.STUDENT_REMOVED) {
+                // Oceny usuniętego studenta nie są już istotne
+                pending.keySet().removeIf(k -> k.startsWith("G:" + event.getStudentId() + ":"));
+            }
+            pending.remove(key);
+            pending.put(key, event);
+            if (pending.size() > queueSize) {
+                overflow();
+                return;
+            }
+            schedule();
+        }
+
+        synchronized void overflow() {
+            if (!resync) overflows.increment();
+            pending.clear();
+            resync = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (!scheduled) {
+                scheduled = true;
+                delivery.execute(this::drain);
+            }
+        }
+
+        private void retryLater(long delayMillis) {
+            try {
+                delivery.schedule(this::drain, delayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // serwer jest zamykany
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                List<ChangeEvent> batch;
+                synchronized (this) {
+                    if (resync) {
+                        batch = List.of(ChangeEvent.resync());
+                        resync = false;
+                    } else {
+                        batch = new ArrayList<>(pending.values());
+                    }
+                    pending.clear();
+                    if (batch.isEmpty()) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                try {
+                    listener.onChanges(batch);
+                    delivered.increment();
+                    failures = 0;
+                } catch (RemoteException e) {
+                    // Klient nieosiągalny - zdarzenia z tej paczki przepadają, klient dostanie RESYNC
+                    if (++failures >= MAX_FAILURES) {
+                        subscribers.remove(listener);
+                        System.out.println("Usunięto nieosiągalnego subskrybenta: " + e.getMessage());
+                        synchronized (this) {
+                            scheduled = false;
+                        }
+                        return;
+                    }
+                    // Ponowna próba później - wątek wraca do dostarczania pozostałym subskrybentom
+                    // (scheduled zostaje true, więc nowe zdarzenia tylko czekają w kolejce)
+                    overflow();
+                    retryLater(RETRY_DELAY_MS << (failures - 1));
+                    return;
+                }
+            }
+        }
+    }
+}
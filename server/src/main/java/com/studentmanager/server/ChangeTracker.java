@@ -0,0 +1,190 @@
+package com.studentmanager.server;
+
+import com.studentmanager.shared.*;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Wersje zmian dla synchronizacji przyrostowej (getStudentsChangedSince).
+// Każda transakcja zapisu dostaje kolejny numer wersji, zapisywany w change_version wstawianych wierszy;
+// usunięcia zostawiają Tombstone z tą wersją.
+// Klient dostaje zmiany tylko do wersji "bezpiecznej" - poniżej najstarszej trwającej transakcji -
+// żeby zapis z niższym numerem zatwierdzony później nie został przez niego pominięty.
+// Tombstone starsze niż maxEvents + 1 najnowszych są usuwane (przy starcie i co sync.tombstonePruneIntervalMs):
+// klient z wersją sprzed najstarszego zostawionego i tak ma w swoim zakresie ponad maxEvents zmian i dostaje RESYNC,
+// a klientowi z nowszą wersją usunięte nie są potrzebne - wynik changesSince się nie zmienia.
+class ChangeTracker {
+    private final EntityManagerFactory emf;
+    private final int maxEvents;
+
+    private long lastVersion;
+    private final TreeSet<Long> inFlight = new TreeSet<>();
+
+    private final ScheduledExecutorService pruner;
+    private final LongAdder prunedTombstones = new LongAdder();
+
+    ChangeTracker(EntityManagerFactory emf, int maxEvents, long pruneIntervalMillis) {
+        this.emf = emf;
+        this.maxEvents = Math.max(1, maxEvents);
+        if (pruneIntervalMillis > 0) {
+            this.pruner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "tombstone-pruner");
+                thread.setDaemon(true);
+                return thread;
+            });
+            pruner.scheduleWithFixedDelay(this::pruneQuietly, pruneIntervalMillis, pruneIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.pruner = null;
+        }
+    }
+
+    // Po restarcie zaczynamy od czasu startu (w mikrosekundach), nie od największej wersji w bazie -
+    // wersja widziana przez klienta mogła należeć do wycofanej transakcji i nie trafić do bazy
+    void warmUp(EntityManager em) {
+        long stored = 0;
+        for (String entity : new String[]{"Student", "Course", "Grade", "Tombstone"}) {
+            Long max = em.createQuery("SELECT MAX(e.changeVersion) FROM " + entity + " e", Long.class).getSingleResult();
+            if (max != null) stored = Math.max(stored, max);
+        }
+        synchronized (this) {
+            lastVersion = Math.max(lastVersion, Math.max(stored, System.currentTimeMillis() * 1000));
+        }
+        pruneQuietly();
+    }
+
+    long prunedTombstones() {
+        return prunedTombstones.sum();
+    }
+
+    void shutdown() {
+        if (pruner != null) pruner.shutdownNow();
+    }
+
+    private void pruneQuietly() {
+        try {
+            prunedTombstones.add(pruneTombstones());
+        } catch (RuntimeException e) {
+            System.out.println("Błąd usuwania starych tombstone: " + e.getMessage());
+        }
+    }
+
+    // Tylko wśród wersji <= safeVersion - zostawione tombstone muszą mieścić się w zakresie każdej późniejszej synchronizacji
+    private int pruneTombstones() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<Long> oldestKept = em.createQuery(
+                            "SELECT t.changeVersion FROM Tombstone t WHERE t.changeVersion <= :upTo ORDER BY t.changeVersion DESC", Long.class)
+                    .setParameter("upTo", safeVersion())
+                    .setFirstResult(maxEvents)
+                    .setMaxResults(1)
+                    .getResultList();
+            if (oldestKept.isEmpty()) return 0;
+            em.getTransaction().begin();
+            int removed = em.createQuery("DELETE FROM Tombstone t WHERE t.changeVersion < :version")
+                    .setParameter("version", oldestKept.get(0))
+                    .executeUpdate();
+            em.getTransaction().commit();
+            return removed;
+        } finally {
+            if (em.getTransaction().isActive()) em.getTransaction().rollback();
+            em.close();
+        }
+    }
+
+    // Wersja dla nowej transakcji - po zakończeniu (commit lub rollback) trzeba wywołać end()
+    synchronized long begin() {
+        long version = ++lastVersion;
+        inFlight.add(version);
+        return version;
+    }
+
+    synchronized void end(long version) {
+        inFlight.remove(version);
+    }
+
+    synchronized long safeVersion() {
+        return inFlight.isEmpty() ? lastVersion : inFlight.first() - 1;
+    }
+
+    // Zdarzenie razem z wersją i kolejnością w obrębie transakcji (przedmiot przed oceną)
+    private static class VersionedEvent {
+        final long version;
+        final int rank;
+        final ChangeEvent event;
+
+        VersionedEvent(long version, int rank, ChangeEvent event) {
+            this.version = version;
+            this.rank = rank;
+            this.event = event;
+        }
+    }
+
+    ChangeLog changesSince(long since) {
+        long upTo = safeVersion();
+        // Wersja 0 albo z innej bazy/sprzed restartu - wiersze bez wersji nie dałyby pełnego obrazu
+        if (since <= 0 || since > upTo) return ChangeLog.resync(upTo);
+        if (since == upTo) return ChangeLog.of(upTo, List.of());
+
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<VersionedEvent> changes = new ArrayList<>();
+
+            for (Course c : em.createQuery(
+                            "SELECT c FROM Course c WHERE c.changeVersion > :since AND c.changeVersion <= :upTo", Course.class)
+                    .setParameter("since", since).setParameter("upTo", upTo)
+                    .setMaxResults(maxEvents + 1)
+                    .getResultList()) {
+                changes.add(new VersionedEvent(c.getChangeVersion(), 0, ChangeEvent.courseAdded(c.getName())));
+            }
+            if (changes.size() > maxEvents) return ChangeLog.resync(upTo);
+
+            for (Student s : em.createQuery(
+                            "SELECT s FROM Student s WHERE s.changeVersion > :since AND s.changeVersion <= :upTo", Student.class)
+                    .setParameter("since", since).setParameter("upTo", upTo)
+                    .setMaxResults(maxEvents + 1 - changes.size())
+                    .getResultList()) {
+                StudentDTO dto = new StudentDTO(s.getId(), s.getFirstName(), s.getLastName(), s.getIndexNumber());
+                changes.add(new VersionedEvent(s.getChangeVersion(), 1, ChangeEvent.studentAdded(dto)));
+            }
+            if (changes.size() > maxEvents) return ChangeLog.resync(upTo);
+
+            for (Object[] g : em.createQuery(
+                            "SELECT g.id, g.student.id, g.course.name, g.value, g.changeVersion FROM Grade g " +
+                            "WHERE g.changeVersion > :since AND g.changeVersion <= :upTo", Object[].class)
+                    .setParameter("since", since).setParameter("upTo", upTo)
+                    .setMaxResults(maxEvents + 1 - changes.size())
+                    .getResultList()) {
+                GradeDTO dto = new GradeDTO((Long) g[0], (String) g[2], (Double) g[3]);
+                changes.add(new VersionedEvent((Long) g[4], 2, ChangeEvent.gradeAdded((Long) g[1], dto)));
+            }
+            if (changes.size() > maxEvents) return ChangeLog.resync(upTo);
+
+            for (Tombstone t : em.createQuery(
+                            "SELECT t FROM Tombstone t WHERE t.changeVersion > :since AND t.changeVersion <= :upTo", Tombstone.class)
+                    .setParameter("since", since).setParameter("upTo", upTo)
+                    .setMaxResults(maxEvents + 1 - changes.size())
+                    .getResultList()) {
+                ChangeEvent event = t.getCourseName() == null
+                        ? ChangeEvent.studentRemoved(t.getStudentId())
+                        : ChangeEvent.gradeRemoved(t.getStudentId(), t.getCourseName());
+                changes.add(new VersionedEvent(t.getChangeVersion(), 3, event));
+            }
+            if (changes.size() > maxEvents) return ChangeLog.resync(upTo);
+
+            changes.sort(Comparator.<VersionedEvent>comparingLong(c -> c.version).thenComparingInt(c -> c.rank));
+            List<ChangeEvent> events = new ArrayList<>(changes.size());
+            for (VersionedEvent change : changes) events.add(change.event);
+            return ChangeLog.of(upTo, events);
+        } finally {
+            em.close();
+        }
+    }
+}
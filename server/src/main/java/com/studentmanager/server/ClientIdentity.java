@@ -0,0 +1,32 @@
+package com.studentmanager.server;
+
+import java.rmi.server.RemoteServer;
+import java.rmi.server.ServerNotActiveException;
+
+// Klient bieżącego wywołania (okno read-your-writes w ReadReplica).
+// Transport NIO ustawia id połączenia; w wątku RMI jedynym dostępnym identyfikatorem jest host klienta,
+// więc klienci z jednego komputera dzielą okno.
+final class ClientIdentity {
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private ClientIdentity() {}
+
+    static String current() {
+        String id = CURRENT.get();
+        if (id != null) return id;
+        try {
+            return "rmi:" + RemoteServer.getClientHost();
+        } catch (ServerNotActiveException e) {
+            // wywołanie lokalne (benchmarki, testy)
+            return "local";
+        }
+    }
+
+    static void set(String id) {
+        CURRENT.set(id);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,124 @@
+package com.studentmanager.server;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+
+import javax.sql.DataSource;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Pula połączeń HikariCP konfigurowana z db.properties.
+// Klucze (z prefiksem, np. "db."):
+//   pool.minIdle, pool.maxSize, pool.connectionTimeoutMs, pool.idleTimeoutMs,
+//   pool.leakDetectionMs (0 = wyłączone), pool.statementCacheSize (cache zapytań sterownika PostgreSQL),
+//   readOnly (połączenia tylko do odczytu, np. replika)
+public final class ConnectionPool implements ConnectionPoolMXBean, AutoCloseable {
+    private final HikariDataSource dataSource;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder acquisitionNanos = new LongAdder();
+    private final LongAccumulator maxAcquisitionNanos = new LongAccumulator(Long::max, 0);
+    private final LongAdder timeouts = new LongAdder();
+
+    public ConnectionPool(String name, Properties props, String prefix) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(name);
+        config.setJdbcUrl(props.getProperty(prefix + "url"));
+        config.setUsername(props.getProperty(prefix + "user"));
+        config.setPassword(props.getProperty(prefix + "password"));
+        String driver = props.getProperty(prefix + "driver");
+        if (driver != null) config.setDriverClassName(driver);
+
+        config.setMinimumIdle(intProp(props, prefix + "pool.minIdle", 2));
+        config.setMaximumPoolSize(intProp(props, prefix + "pool.maxSize", 10));
+        config.setConnectionTimeout(longProp(props, prefix + "pool.connectionTimeoutMs", 30_000));
+        config.setIdleTimeout(longProp(props, prefix + "pool.idleTimeoutMs", 600_000));
+        config.setLeakDetectionThreshold(longProp(props, prefix + "pool.leakDetectionMs", 0));
+        config.setAutoCommit(false);
+        config.setReadOnly(Boolean.parseBoolean(props.getProperty(prefix + "readOnly", "false")));
+
+        int statementCache = intProp(props, prefix + "pool.statementCacheSize", 256);
+        if (config.getJdbcUrl() != null && config.getJdbcUrl().startsWith("jdbc:postgresql:")) {
+            config.addDataSourceProperty("preparedStatementCacheQueries", statementCache);
+            config.addDataSourceProperty("prepareThreshold", 1);
+        }
+
+        config.setMetricsTrackerFactory((poolName, poolStats) -> new Tracker());
+        this.dataSource = new HikariDataSource(config);
+        Jmx.register(this, "type=ConnectionPool,name=" + name);
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    private HikariPoolMXBean pool() {
+        return dataSource.getHikariPoolMXBean();
+    }
+
+    @Override
+    public int getActiveConnections() { return pool().getActiveConnections(); }
+
+    @Override
+    public int getIdleConnections() { return pool().getIdleConnections(); }
+
+    @Override
+    public int getTotalConnections() { return pool().getTotalConnections(); }
+
+    @Override
+    public int getThreadsAwaitingConnection() { return pool().getThreadsAwaitingConnection(); }
+
+    @Override
+    public int getMaximumPoolSize() { return dataSource.getMaximumPoolSize(); }
+
+    @Override
+    public long getAcquisitions() { return acquisitions.sum(); }
+
+    @Override
+    public long getAcquisitionTimeouts() { return timeouts.sum(); }
+
+    @Override
+    public double getMeanAcquisitionMicros() {
+        long count = acquisitions.sum();
+        return count == 0 ? 0.0 : acquisitionNanos.sum() / 1000.0 / count;
+    }
+
+    @Override
+    public long getMaxAcquisitionMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxAcquisitionNanos.get());
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+
+    // Hikari zgłasza czas oczekiwania na połączenie przy każdym pobraniu z puli
+    private class Tracker implements IMetricsTracker {
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquisitions.increment();
+            acquisitionNanos.add(elapsedAcquiredNanos);
+            maxAcquisitionNanos.accumulate(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+    }
+
+    private static int intProp(Properties props, String key, int defaultValue) {
+        String value = props.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static long longProp(Properties props, String key, long defaultValue) {
+        String value = props.getProperty(key);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+}
@@ -0,0 +1,14 @@
+package com.studentmanager.server;
+
+// Bieżący stan puli połączeń widoczny przez JMX
+public interface ConnectionPoolMXBean {
+    int getActiveConnections();
+    int getIdleConnections();
+    int getTotalConnections();
+    int getThreadsAwaitingConnection();
+    int getMaximumPoolSize();
+    long getAcquisitions();
+    long getAcquisitionTimeouts();
+    double getMeanAcquisitionMicros();
+    long getMaxAcquisitionMicros();
+}
@@ -0,0 +1,18 @@
+package com.studentmanager.server;
+
+import com.studentmanager.shared.GradeDTO;
+import com.studentmanager.shared.StudentDTO;
+
+// Powiadomienia o zmianach danych, wywoływane po udanym commit.
+// Implementują je struktury trzymane w pamięci serwera (cache, słowniki), żeby nadążały za bazą.
+interface DataChangeListener {
+    default void studentAdded(StudentDTO student) {}
+
+    default void studentRemoved(Long studentId) {}
+
+    default void courseAdded(Long courseId, String courseName) {}
+
+    default void gradeAdded(Long studentId, GradeDTO grade) {}
+
+    default void gradeRemoved(Long studentId, String courseName) {}
+}
@@ -0,0 +1,54 @@
+package com.studentmanager.server;
+
+import com.studentmanager.shared.GradeDTO;
+import com.studentmanager.shared.StudentDTO;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Rozsyła zdarzenie do wszystkich zarejestrowanych słuchaczy.
+// Zdarzenia idą po zatwierdzeniu transakcji - błąd jednego słuchacza jest tylko logowany,
+// nie przerywa powiadamiania pozostałych ani nie zmienia wyniku zapisu.
+class DataChangeListeners implements DataChangeListener {
+    private final List<DataChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    void add(DataChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    private void dispatch(Consumer<DataChangeListener> event) {
+        for (DataChangeListener listener : listeners) {
+            try {
+                event.accept(listener);
+            } catch (RuntimeException e) {
+                System.out.println("Błąd powiadamiania o zmianie danych: " + e);
+            }
+        }
+    }
+
+    @Override
+    public void studentAdded(StudentDTO student) {
+        dispatch(l -> l.studentAdded(student));
+    }
+
+    @Override
+    public void studentRemoved(Long studentId) {
+        dispatch(l -> l.studentRemoved(studentId));
+    }
+
+    @Override
+    public void courseAdded(Long courseId, String courseName) {
+        dispatch(l -> l.courseAdded(courseId, courseName));
+    }
+
+    @Override
+    public void gradeAdded(Long studentId, GradeDTO grade) {
+        dispatch(l -> l.gradeAdded(studentId, grade));
+    }
+
+    @Override
+    public void gradeRemoved(Long studentId, String courseName) {
+        dispatch(l -> l.gradeRemoved(studentId, courseName));
+    }
+}
@@ -0,0 +1,64 @@
+package com.studentmanager.server;
+
+import com.studentmanager.shared.StudentDTO;
+
+import javax.persistence.EntityManager;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Słownik trzymany w pamięci serwera: nazwa przedmiotu -> id oraz numer indeksu <-> id studenta.
+// Wypełniany przy starcie i aktualizowany po każdym zapisie, dzięki czemu zapisy nie muszą
+// wyszukiwać przedmiotów i studentów zapytaniami.
+class EntityDirectory implements DataChangeListener {
+    private final Map<String, Long> courseIds = new ConcurrentHashMap<>();
+    private final Map<String, Long> studentIdsByIndex = new ConcurrentHashMap<>();
+    private final Map<Long, String> indexesByStudentId = new ConcurrentHashMap<>();
+
+    void warmUp(EntityManager em) {
+        for (Object[] row : em.createQuery("SELECT c.name, c.id FROM Course c", Object[].class).getResultList()) {
+            courseIds.put((String) row[0], (Long) row[1]);
+        }
+        for (Object[] row : em.createQuery("SELECT s.indexNumber, s.id FROM Student s", Object[].class).getResultList()) {
+            putStudent((Long) row[1], (String) row[0]);
+        }
+        System.out.println("Słownik: " + courseIds.size() + " przedmiotów, " + studentIdsByIndex.size() + " studentów");
+    }
+
+    // null, jeśli przedmiot nie jest znany
+    Long courseId(String courseName) {
+        return courseName == null ? null : courseIds.get(courseName);
+    }
+
+    Long studentIdByIndex(String indexNumber) {
+        return indexNumber == null ? null : studentIdsByIndex.get(indexNumber);
+    }
+
+    boolean containsIndex(String indexNumber) {
+        return indexNumber != null && studentIdsByIndex.containsKey(indexNumber);
+    }
+
+    boolean containsStudent(Long studentId) {
+        return studentId != null && indexesByStudentId.containsKey(studentId);
+    }
+
+    private void putStudent(Long id, String indexNumber) {
+        studentIdsByIndex.put(indexNumber, id);
+        indexesByStudentId.put(id, indexNumber);
+    }
+
+    @Override
+    public void studentAdded(StudentDTO student) {
+        putStudent(student.getId(), student.getIndexNumber());
+    }
+
+    @Override
+    public void studentRemoved(Long studentId) {
+        String indexNumber = indexesByStudentId.remove(studentId);
+        if (indexNumber != null) studentIdsByIndex.remove(indexNumber, studentId);
+    }
+
+    @Override
+    public void courseAdded(Long courseId, String courseName) {
+        courseIds.put(courseName, courseId);
+    }
+}
@@ -0,0 +1,107 @@
+package com.studentmanager.server;
+
+import com.studentmanager.shared.GradeDTO;
+import com.studentmanager.shared.PackedGradeList;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Ograniczony cache LRU list ocen per student.
+// Wpis jest zapisywany tylko, jeśli od rozpoczęcia odczytu z bazy nie było żadnej invalidacji,
+// dzięki temu równoległy odczyt nie nadpisze cache danymi sprzed zapisu.
+public class GradeCache implements GradeCacheMXBean, DataChangeListener {
+    private final int maxEntries;
+    private final LinkedHashMap<Long, List<GradeDTO>> entries;
+    private long invalidations;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public GradeCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, List<GradeDTO>> eldest) {
+                if (size() > GradeCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    // Zwraca null, jeśli brak wpisu
+    public synchronized List<GradeDTO> get(Long studentId) {
+        List<GradeDTO> grades = entries.get(studentId);
+        if (grades != null) hits.incrementAndGet();
+        else misses.incrementAndGet();
+        return grades;
+    }
+
+    // Znacznik pobierany przed odczytem z bazy i przekazywany do put()
+    public synchronized long stamp() {
+        return invalidations;
+    }
+
+    public synchronized void put(Long studentId, List<GradeDTO> grades, long stamp) {
+        if (!isEnabled() || stamp != invalidations) return;
+        // PackedGradeList jest niemodyfikowalna i od razu gotowa do wysłania
+        entries.put(studentId, PackedGradeList.of(grades));
+    }
+
+    public synchronized void invalidate(Long studentId) {
+        invalidations++;
+        entries.remove(studentId);
+    }
+
+    @Override
+    public void studentRemoved(Long studentId) {
+        invalidate(studentId);
+    }
+
+    @Override
+    public void gradeAdded(Long studentId, GradeDTO grade) {
+        invalidate(studentId);
+    }
+
+    @Override
+    public void gradeRemoved(Long studentId, String courseName) {
+        invalidate(studentId);
+    }
+
+    @Override
+    public synchronized void clear() {
+        invalidations++;
+        entries.clear();
+    }
+
+    @Override
+    public long getHits() { return hits.get(); }
+
+    @Override
+    public long getMisses() { return misses.get(); }
+
+    @Override
+    public long getEvictions() { return evictions.get(); }
+
+    @Override
+    public synchronized int getSize() { return entries.size(); }
+
+    @Override
+    public int getMaxEntries() { return maxEntries; }
+
+    @Override
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+}
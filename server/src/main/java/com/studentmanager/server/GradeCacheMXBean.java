@@ -0,0 +1,12 @@
+package com.studentmanager.server;
+
+// Liczniki cache ocen widoczne przez JMX (np. w jconsole)
+public interface GradeCacheMXBean {
+    long getHits();
+    long getMisses();
+    long getEvictions();
+    int getSize();
+    int getMaxEntries();
+    double getHitRatio();
+    void clear();
+}
@@ -0,0 +1,362 @@
+package com.studentmanager.server;
+
+import com.studentmanager.shared.*;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Statystyki ocen utrzymywane przyrostowo po każdej zmianie (odczyt O(1), bez zapytań do bazy).
+// Trzyma w pamięci wszystkie pary student-przedmiot z oceną, dzięki czemu przy usuwaniu oceny
+// wiadomo, jaką wartość odjąć. Operacje są idempotentne (dodanie istniejącej pary podmienia ocenę),
+// więc zdarzenia z czasu przebudowy można bezpiecznie odtworzyć na nowym stanie.
+// Każdy przedmiot ma też ranking (drzewo ocen od najwyższej) - zmiana oceny to O(log n), a strona rankingu
+// albo lista poniżej progu to O(log n + rozmiar strony) bez przeglądania wszystkich ocen.
+public class GradeStatistics implements DataChangeListener, GradeStatisticsMXBean {
+
+    private static class StudentAggregate {
+        final Map<String, Double> grades = new HashMap<>();
+        double sum;
+    }
+
+    // Pozycja w rankingu przedmiotu
+    private static final class Ranked {
+        final long studentId;
+        final double value;
+
+        Ranked(long studentId, double value) {
+            this.studentId = studentId;
+            this.value = value;
+        }
+    }
+
+    // Od najwyższej oceny, przy równych - po id studenta (stała kolejność dla kursora)
+    private static final Comparator<Ranked> RANKING_ORDER = (a, b) -> {
+        int byValue = Double.compare(b.value, a.value);
+        return byValue != 0 ? byValue : Long.compare(a.studentId, b.studentId);
+    };
+
+    private static class CourseAggregate {
+        final TreeMap<Double, Integer> histogram = new TreeMap<>();
+        final TreeSet<Ranked> ranking = new TreeSet<>(RANKING_ORDER);
+        int count;
+        double sum;
+    }
+
+    // Cały stan w jednym obiekcie, żeby przebudowa mogła go podmienić za jednym razem
+    private static class State {
+        final Map<Long, StudentAggregate> students = new HashMap<>();
+        final Map<String, CourseAggregate> courses = new HashMap<>();
+        long gradeCount;
+
+        void put(Long studentId, String courseName, double value) {
+            StudentAggregate student = students.computeIfAbsent(studentId, id -> new StudentAggregate());
+            Double previous = student.grades.put(courseName, value);
+            if (previous != null) removeFromCourse(studentId, courseName, previous);
+            else gradeCount++;
+            student.sum += value - (previous != null ? previous : 0.0);
+
+            CourseAggregate course = courses.computeIfAbsent(courseName, name -> new CourseAggregate());
+            course.count++;
+            course.sum += value;
+            course.histogram.merge(value, 1, Integer::sum);
+            course.ranking.add(new Ranked(studentId, value));
+        }
+
+        void remove(Long studentId, String courseName) {
+            StudentAggregate student = students.get(studentId);
+            if (student == null) return;
+            Double value = student.grades.remove(courseName);
+            if (value == null) return;
+            gradeCount--;
+            student.sum -= value;
+            if (student.grades.isEmpty()) students.remove(studentId);
+            removeFromCourse(studentId, courseName, value);
+        }
+
+        void removeStudent(Long studentId) {
+            StudentAggregate student = students.remove(studentId);
+            if (student == null) return;
+            gradeCount -= student.grades.size();
+            student.grades.forEach((courseName, value) -> removeFromCourse(studentId, courseName, value));
+        }
+
+        private void removeFromCourse(Long studentId, String courseName, double value) {
+            CourseAggregate course = courses.get(courseName);
+            if (course == null) return;
+            course.count--;
+            course.sum -= value;
+            if (course.histogram.merge(value, -1, Integer::sum) == 0) course.histogram.remove(value);
+            course.ranking.remove(new Ranked(studentId, value));
+            // Przedmiot bez ocen znika ze statystyk
+            if (course.count == 0) courses.remove(courseName);
+        }
+    }
+
+    private final EntityManagerFactory emf;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private State state = new State();
+    // Zdarzenia z czasu przebudowy, odtwarzane na nowym stanie; null poza przebudową
+    private List<Consumer<State>> pendingDuringRebuild;
+
+    public GradeStatistics(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    // --- Odczyt ---
+
+    public StudentStatsDTO studentStats(Long studentId) {
+        lock.readLock().lock();
+        try {
+            StudentAggregate student = state.students.get(studentId);
+            if (student == null) return new StudentStatsDTO(studentId, 0, 0.0);
+            return new StudentStatsDTO(studentId, student.grades.size(), student.sum / student.grades.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // null, gdy przedmiot nie ma żadnych ocen
+    public CourseStatsDTO courseStats(String courseName) {
+        lock.readLock().lock();
+        try {
+            CourseAggregate course = state.courses.get(courseName);
+            return course == null ? null : toDto(courseName, course);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<CourseStatsDTO> allCourseStats() {
+        lock.readLock().lock();
+        try {
+            List<CourseStatsDTO> result = new ArrayList<>();
+            state.courses.forEach((name, course) -> result.add(toDto(name, course)));
+            result.sort(Comparator.comparing(CourseStatsDTO::getCourseName));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Strona rankingu przedmiotu; students podaje dane studenta (wywoływane już bez blokady)
+    public CourseRankingPage ranking(CourseRankingCursor cursor, int limit, Function<Long, StudentDTO> students) {
+        List<Ranked> page = new ArrayList<>(limit);
+        int[] ranks = new int[limit];
+        boolean more = false;
+        lock.readLock().lock();
+        try {
+            CourseAggregate course = state.courses.get(cursor.getCourseName());
+            if (course != null) {
+                NavigableSet<Ranked> rest = cursor.isFirst() ? course.ranking : course.ranking.tailSet(
+                        new Ranked(cursor.getAfterStudentId(), cursor.getAfterValue()), false);
+                int rank = 0;
+                double rankValue = Double.NaN;
+                for (Ranked entry : rest) {
+                    if (page.size() == limit) {
+                        more = true;
+                        break;
+                    }
+                    if (entry.value != rankValue) {
+                        rankValue = entry.value;
+                        rank = rank(course, rankValue);
+                    }
+                    ranks[page.size()] = rank;
+                    page.add(entry);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        CourseRankingCursor next = null;
+        if (more) {
+            Ranked last = page.get(page.size() - 1);
+            next = new CourseRankingCursor(cursor.getCourseName(), last.value, last.studentId);
+        }
+        return new CourseRankingPage(toDtos(page, ranks, students), next);
+    }
+
+    // Oceny przedmiotu niższe niż threshold, od najniższej
+    public List<RankingEntryDTO> below(String courseName, double threshold, int limit, Function<Long, StudentDTO> students) {
+        List<Ranked> page = new ArrayList<>(limit);
+        int[] ranks = new int[limit];
+        lock.readLock().lock();
+        try {
+            CourseAggregate course = state.courses.get(courseName);
+            if (course != null) {
+                // Za (threshold, największe id) w kolejności rankingu są tylko oceny niższe od progu
+                Iterator<Ranked> lowest = course.ranking.tailSet(new Ranked(Long.MAX_VALUE, threshold), false)
+                        .descendingIterator();
+                while (lowest.hasNext() && page.size() < limit) {
+                    Ranked entry = lowest.next();
+                    ranks[page.size()] = rank(course, entry.value);
+                    page.add(entry);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return toDtos(page, ranks, students);
+    }
+
+    // 1 + liczba wyższych ocen - z histogramu, który ma tylko kilka różnych wartości
+    private static int rank(CourseAggregate course, double value) {
+        int higher = 0;
+        for (int count : course.histogram.tailMap(value, false).values()) higher += count;
+        return higher + 1;
+    }
+
+    private static List<RankingEntryDTO> toDtos(List<Ranked> page, int[] ranks, Function<Long, StudentDTO> students) {
+        List<RankingEntryDTO> result = new ArrayList<>(page.size());
+        for (int i = 0; i < page.size(); i++) {
+            StudentDTO student = students.apply(page.get(i).studentId);
+            // Student usunięty w międzyczasie
+            if (student != null) result.add(new RankingEntryDTO(ranks[i], student, page.get(i).value));
+        }
+        return result;
+    }
+
+    private static CourseStatsDTO toDto(String courseName, CourseAggregate course) {
+        return new CourseStatsDTO(courseName, course.count, course.sum / course.count,
+                course.histogram.firstKey(), course.histogram.lastKey(), new TreeMap<>(course.histogram));
+    }
+
+    // --- Zmiany ---
+
+    private void apply(Consumer<State> update) {
+        lock.writeLock().lock();
+        try {
+            update.accept(state);
+            if (pendingDuringRebuild != null) pendingDuringRebuild.add(update);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void gradeAdded(Long studentId, GradeDTO grade) {
+        apply(s -> s.put(studentId, grade.getCourseName(), grade.getValue()));
+    }
+
+    @Override
+    public void gradeRemoved(Long studentId, String courseName) {
+        apply(s -> s.remove(studentId, courseName));
+    }
+
+    @Override
+    public void studentRemoved(Long studentId) {
+        apply(s -> s.removeStudent(studentId));
+    }
+
+    // --- Przebudowa z bazy ---
+
+    private State load() {
+        State fresh = new State();
+        EntityManager em = emf.createEntityManager();
+        try {
+            for (Object[] row : em.createQuery(
+                    "SELECT g.student.id, c.name, g.value FROM Grade g JOIN g.course c", Object[].class).getResultList()) {
+                fresh.put((Long) row[0], (String) row[1], (Double) row[2]);
+            }
+        } finally {
+            em.close();
+        }
+        return fresh;
+    }
+
+    @Override
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        State fresh;
+        try {
+            fresh = load();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            List<Consumer<State>> pending = pendingDuringRebuild;
+            pendingDuringRebuild = null;
+            state = fresh;
+            // Zmiany zatwierdzone w trakcie ładowania mogły się w nim nie znaleźć
+            pending.forEach(update -> update.accept(fresh));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        System.out.println("Statystyki ocen: " + getGradeCount() + " ocen, " + getCourseCount() + " przedmiotów");
+    }
+
+    @Override
+    public String verify() {
+        State fresh = load();
+        StringBuilder differences = new StringBuilder();
+        lock.readLock().lock();
+        try {
+            Set<String> names = new TreeSet<>(fresh.courses.keySet());
+            names.addAll(state.courses.keySet());
+            for (String name : names) {
+                CourseAggregate expected = fresh.courses.get(name);
+                CourseAggregate actual = state.courses.get(name);
+                if (expected == null || actual == null || expected.count != actual.count
+                        || !expected.histogram.equals(actual.histogram) || actual.ranking.size() != actual.count) {
+                    differences.append(name).append(": baza=").append(expected == null ? 0 : expected.count)
+                            .append(" pamięć=").append(actual == null ? 0 : actual.count).append('\n');
+                }
+            }
+            if (fresh.gradeCount != state.gradeCount) {
+                differences.append("Liczba ocen: baza=").append(fresh.gradeCount)
+                        .append(" pamięć=").append(state.gradeCount).append('\n');
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return differences.toString();
+    }
+
+    @Override
+    public int getStudentCount() {
+        lock.readLock().lock();
+        try {
+            return state.students.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int getCourseCount() {
+        lock.readLock().lock();
+        try {
+            return state.courses.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long getGradeCount() {
+        lock.readLock().lock();
+        try {
+            return state.gradeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.studentmanager.server;
+
+public interface GradeStatisticsMXBean {
+    int getStudentCount();
+    int getCourseCount();
+    long getGradeCount();
+
+    // Przelicza statystyki od nowa z bazy
+    void rebuild();
+
+    // Porównuje statystyki w pamięci z bazą, zwraca opis różnic (pusty, gdy są zgodne)
+    String verify();
+}
@@ -0,0 +1,296 @@
+package com.studentmanager.server;
+
+import com.studentmanager.shared.*;
+import org.hibernate.jpa.QueryHints;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+import java.rmi.RemoteException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Zapis ocen grupowymi transakcjami (grades.groupCommit.enabled=true).
+// addGrade/removeGrade z wielu wątków RMI trafiają do kolejki, a jeden wątek zapisujący zbiera je w grupę
+// (do maxBatch operacji albo maxDelayMs od pierwszej) i zatwierdza jedną transakcją - jeden commit i jeden fsync
+// bazy zamiast osobnych dla każdej oceny.
+// Każdy wywołujący dostaje własny wynik: operacje skazane na błąd (brak studenta, duplikat oceny) są odrzucane
+// przed zapisem, a gdy grupa mimo to się nie powiedzie, operacje są powtarzane pojedynczo (jak w BulkImporter).
+class GradeWritePipeline {
+    private static class Mutation {
+        final Long studentId;
+        final String courseName;
+        // null - usunięcie oceny
+        final Double value;
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        Mutation(Long studentId, String courseName, Double value) {
+            this.studentId = studentId;
+            this.courseName = courseName;
+            this.value = value;
+        }
+
+        String key() {
+            return studentId + "\u0000" + courseName;
+        }
+    }
+
+    private final EntityManagerFactory emf;
+    private final EntityDirectory directory;
+    private final DataChangeListener changeListener;
+    private final ChangeTracker changeTracker;
+    private final int maxBatch;
+    private final long maxDelayNanos;
+    private final long timeoutMillis;
+    private final BlockingQueue<Mutation> queue;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final LongAdder groups = new LongAdder();
+    private final LongAdder mutations = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    GradeWritePipeline(EntityManagerFactory emf, EntityDirectory directory, DataChangeListener changeListener,
+                       ChangeTracker changeTracker, int maxBatch, long maxDelayMillis, int queueSize,
+                       long timeoutMillis) {
+        this.emf = emf;
+        this.directory = directory;
+        this.changeListener = changeListener;
+        this.changeTracker = changeTracker;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxDelayMillis));
+        this.timeoutMillis = Math.max(1, timeoutMillis);
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, queueSize));
+        this.writer = new Thread(this::run, "grade-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    void addGrade(Long studentId, String courseName, double value) throws Exception {
+        submit(new Mutation(studentId, courseName, value));
+    }
+
+    void removeGrade(Long studentId, String courseName) throws Exception {
+        submit(new Mutation(studentId, courseName, null));
+    }
+
+    // Czeka na zatwierdzenie grupy z tą operacją (najwyżej timeoutMs); błąd operacji jest rzucany jako jego przyczyna
+    private void submit(Mutation mutation) throws Exception {
+        if (!running) throw new RemoteException("Serwer jest zamykany");
+        if (!queue.offer(mutation)) throw new RemoteException("Kolejka zapisów ocen jest pełna");
+        try {
+            mutation.result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } catch (TimeoutException e) {
+            // Operacja może jeszcze zostać zapisana - klient sprawdza stan ocen przed ponowieniem
+            throw new RemoteException("Przekroczono czas oczekiwania na zapis oceny (" + timeoutMillis + " ms)");
+        }
+    }
+
+    int queued() {
+        return queue.size();
+    }
+
+    long groupCount() {
+        return groups.sum();
+    }
+
+    long mutationCount() {
+        return mutations.sum();
+    }
+
+    long fallbackCount() {
+        return fallbacks.sum();
+    }
+
+    void shutdown() {
+        running = false;
+        writer.interrupt();
+        Mutation pending;
+        while ((pending = queue.poll()) != null) abort(pending);
+    }
+
+    private static void abort(Mutation mutation) {
+        mutation.result.completeExceptionally(new RemoteException("Serwer jest zamykany"));
+    }
+
+    private void run() {
+        List<Mutation> group = new ArrayList<>(maxBatch);
+        Set<String> keys = new HashSet<>();
+        Mutation carried = null;
+        int lastGroupSize = 0;
+        while (running) {
+            try {
+                Mutation first = carried != null ? carried : queue.poll(100, TimeUnit.MILLISECONDS);
+                carried = null;
+                if (first == null) continue;
+                group.add(first);
+                keys.add(first.key());
+
+                // Ta sama para student-przedmiot najwyżej raz w grupie: zdarzenia jednej wersji są porządkowane
+                // po rodzaju, więc usunięcie i ponowne dodanie w jednej transakcji pomyliłoby synchronizację
+                // Na kolejne operacje czekamy tylko do rozmiaru poprzedniej grupy (tylu było równoczesnych piszących) -
+                // pojedynczy klient nie płaci opóźnieniem za każdą ocenę, a pełna grupa nie czeka do końca maxDelayMs
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (group.size() < maxBatch) {
+                    Mutation next = queue.poll();
+                    if (next == null) {
+                        long wait = group.size() < lastGroupSize ? deadline - System.nanoTime() : 0;
+                        if (wait <= 0 || (next = queue.poll(wait, TimeUnit.NANOSECONDS)) == null) break;
+                    }
+                    if (!keys.add(next.key())) {
+                        carried = next;
+                        break;
+                    }
+                    group.add(next);
+                }
+                lastGroupSize = group.size();
+                write(group);
+            } catch (InterruptedException e) {
+                // Przerwanie przez shutdown() w trakcie zbierania grupy - zebrane operacje nie zostały zapisane
+                for (Mutation m : group) abort(m);
+                break;
+            } catch (RuntimeException e) {
+                // write() kończy każdą operację - tu trafiają tylko błędy nieprzewidziane
+                for (Mutation m : group) m.result.completeExceptionally(e);
+            } finally {
+                group.clear();
+                keys.clear();
+            }
+        }
+        if (carried != null) abort(carried);
+        // Operacje dodane między sprawdzeniem running w submit() a opróżnieniem kolejki przez shutdown()
+        Mutation pending;
+        while ((pending = queue.poll()) != null) abort(pending);
+    }
+
+    private void write(List<Mutation> group) {
+        groups.increment();
+        mutations.add(group.size());
+        try {
+            commit(group);
+        } catch (RuntimeException groupError) {
+            if (group.size() == 1) {
+                group.get(0).result.completeExceptionally(groupError);
+                return;
+            }
+            // Grupa wycofana - każda operacja w osobnej transakcji, błąd dotyczy tylko jej wywołującego
+            fallbacks.increment();
+            for (Mutation m : group) {
+                try {
+                    commit(List.of(m));
+                } catch (RuntimeException e) {
+                    m.result.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    // Cała grupa z jedną wersją zmian; zdarzenia i wyniki dopiero po udanym commit, poza obsługą jego błędów -
+    // wyjątek słuchacza nie może wycofać grupy do write(), które powtórzyłoby już zapisane operacje
+    private void commit(List<Mutation> group) {
+        long version = changeTracker.begin();
+        try {
+            List<Runnable> events = new ArrayList<>();
+            Map<Mutation, Exception> rejected = new IdentityHashMap<>();
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+
+                // Istniejące oceny studentów z grupy jednym zapytaniem
+                Set<Long> studentIds = new HashSet<>();
+                for (Mutation m : group) studentIds.add(m.studentId);
+                Set<String> existing = new HashSet<>();
+                for (Object[] r : em.createQuery(
+                                "SELECT g.student.id, g.course.name FROM Grade g WHERE g.student.id IN :sids", Object[].class)
+                        .setParameter("sids", studentIds)
+                        .getResultList()) {
+                    existing.add(r[0] + "\u0000" + r[1]);
+                }
+
+                Map<String, Course> groupCourses = new HashMap<>();
+                for (Mutation m : group) {
+                    if (m.value != null) {
+                        if (!directory.containsStudent(m.studentId) && em.find(Student.class, m.studentId) == null) {
+                            rejected.put(m, new IllegalArgumentException("Student nie istnieje"));
+                            continue;
+                        }
+                        if (existing.contains(m.key())) {
+                            rejected.put(m, new IllegalArgumentException("Student ma już ocenę z przedmiotu " + m.courseName));
+                            continue;
+                        }
+                        Course course = course(em, m.courseName, version, groupCourses, events);
+                        Grade grade = new Grade(m.value, em.getReference(Student.class, m.studentId), course);
+                        grade.setChangeVersion(version);
+                        em.persist(grade);
+                        GradeDTO added = new GradeDTO(grade.getId(), m.courseName, grade.getValue());
+                        events.add(() -> changeListener.gradeAdded(m.studentId, added));
+                    } else {
+                        Long courseId = directory.courseId(m.courseName);
+                        Query q;
+                        if (courseId != null) {
+                            q = em.createQuery("DELETE FROM Grade g WHERE g.student.id = :sid AND g.course.id = :cid");
+                            q.setParameter("cid", courseId);
+                        } else {
+                            q = em.createQuery("DELETE FROM Grade g WHERE g.student.id = :sid " +
+                                    "AND g.course.id IN (SELECT c.id FROM Course c WHERE c.name = :cname)");
+                            q.setParameter("cname", m.courseName);
+                        }
+                        q.setParameter("sid", m.studentId);
+                        if (q.executeUpdate() > 0) {
+                            em.persist(new Tombstone(version, m.studentId, m.courseName));
+                            events.add(() -> changeListener.gradeRemoved(m.studentId, m.courseName));
+                        }
+                    }
+                }
+                em.getTransaction().commit();
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) em.getTransaction().rollback();
+                throw e;
+            } finally {
+                em.close();
+            }
+
+            // Zdarzenia przed end(version) i przed wynikami - wywołujący po powrocie nie trafi na nieunieważniony cache
+            for (Runnable event : events) {
+                try {
+                    event.run();
+                } catch (RuntimeException e) {
+                    System.out.println("Błąd powiadamiania o zapisanych ocenach: " + e);
+                }
+            }
+            for (Mutation m : group) {
+                Exception error = rejected.get(m);
+                if (error != null) m.result.completeExceptionally(error);
+                else m.result.complete(null);
+            }
+        } finally {
+            changeTracker.end(version);
+        }
+    }
+
+    private Course course(EntityManager em, String name, long version, Map<String, Course> groupCourses, List<Runnable> events) {
+        Long courseId = directory.courseId(name);
+        if (courseId != null) return em.getReference(Course.class, courseId);
+        Course course = groupCourses.get(name);
+        if (course != null) return course;
+
+        List<Course> found = em.createQuery("SELECT c FROM Course c WHERE c.name = :name", Course.class)
+                .setHint(QueryHints.HINT_CACHEABLE, true)
+                .setParameter("name", name)
+                .getResultList();
+        if (found.isEmpty()) {
+            course = new Course(name);
+            course.setChangeVersion(version);
+            em.persist(course);
+        } else {
+            course = found.get(0);
+        }
+        groupCourses.put(name, course);
+        Course resolved = course;
+        events.add(() -> changeListener.courseAdded(resolved.getId(), name));
+        return course;
+    }
+}
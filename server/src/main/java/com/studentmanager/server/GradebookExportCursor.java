@@ -0,0 +1,119 @@
+package com.studentmanager.server;
+
+import com.studentmanager.shared.GradebookExport;
+import com.studentmanager.shared.GradebookRow;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.rmi.server.Unreferenced;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Kursor eksportu dziennika: wyniki czytane z bazy przewijaniem tylko do przodu (w PostgreSQL kursor z fetchSize),
+// więc serwer trzyma w pamięci najwyżej jedną paczkę.
+// Transakcja i połączenie są otwarte do końca danych, close(), utraty klienta (Unreferenced) albo zamknięcia
+// po bezczynności przez GradebookExports; do tego czasu kursor jest w jego zbiorze otwartych eksportów.
+class GradebookExportCursor extends UnicastRemoteObject implements GradebookExport, Unreferenced {
+    private final int chunkSize;
+    private final GradebookExports exports;
+    private final CallGate gate;
+    private EntityManager em;
+    private ScrollableResults rows;
+    private boolean closed;
+    private boolean idleClosed;
+    private volatile long lastUsed = System.nanoTime();
+
+    GradebookExportCursor(EntityManagerFactory emf, int chunkSize, GradebookExports exports, CallGate gate)
+            throws RemoteException {
+        super();
+        this.chunkSize = chunkSize;
+        this.exports = exports;
+        this.gate = gate;
+        try {
+            exports.register(this);
+            this.em = emf.createEntityManager();
+            em.getTransaction().begin();
+            rows = em.unwrap(Session.class)
+                    .createQuery("SELECT s.indexNumber, s.firstName, s.lastName, c.name, g.value " +
+                            "FROM Student s LEFT JOIN Grade g ON g.student.id = s.id LEFT JOIN g.course c " +
+                            "ORDER BY s.id, c.name", Object[].class)
+                    .setFetchSize(chunkSize)
+                    .setReadOnly(true)
+                    .scroll(ScrollMode.FORWARD_ONLY);
+        } catch (RemoteException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public List<GradebookRow> nextChunk() throws RemoteException {
+        return gate.call("exportGradebook.nextChunk", false, this::readChunk);
+    }
+
+    private synchronized List<GradebookRow> readChunk() throws RemoteException {
+        lastUsed = System.nanoTime();
+        if (idleClosed) {
+            throw new RemoteException("Eksport zamknięty po "
+                    + TimeUnit.NANOSECONDS.toMillis(exports.idleTimeoutNanos()) + " ms bezczynności");
+        }
+        if (rows == null) return List.of();
+        try {
+            List<GradebookRow> chunk = new ArrayList<>(chunkSize);
+            while (chunk.size() < chunkSize && rows.next()) {
+                Object[] r = rows.get();
+                chunk.add(new GradebookRow((String) r[0], (String) r[1], (String) r[2], (String) r[3], (Double) r[4]));
+            }
+            if (chunk.isEmpty()) close();
+            lastUsed = System.nanoTime();
+            return chunk;
+        } catch (RuntimeException e) {
+            close();
+            throw new RemoteException("Błąd eksportu: " + e.getMessage(), e);
+        }
+    }
+
+    // Wywoływane przez GradebookExports; czas sprawdzany ponownie pod blokadą - klient mógł właśnie pobrać paczkę
+    synchronized boolean closeIfIdle(long now) {
+        if (closed || now - lastUsed < exports.idleTimeoutNanos()) return false;
+        idleClosed = true;
+        close();
+        return true;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            if (rows != null) rows.close();
+            if (em != null) {
+                if (em.getTransaction().isActive()) em.getTransaction().rollback();
+                em.close();
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Błąd zamykania eksportu: " + e.getMessage());
+        } finally {
+            rows = null;
+            em = null;
+            exports.unregister(this);
+            try {
+                UnicastRemoteObject.unexportObject(this, true);
+            } catch (Exception ignored) {
+                // już usunięty
+            }
+        }
+    }
+
+    // Klient zniknął bez close() - zwalniamy połączenie z bazą
+    @Override
+    public void unreferenced() {
+        close();
+    }
+}
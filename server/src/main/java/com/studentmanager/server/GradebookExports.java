@@ -0,0 +1,91 @@
+package com.studentmanager.server;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Otwarte eksporty dziennika. Każdy kursor trzyma transakcję i połączenie z puli między wywołaniami klienta,
+// więc eksportów jest najwyżej stream.maxExports (domyślnie połowa db.pool.maxSize - reszta puli zostaje dla
+// pozostałych metod), a kursor, z którego klient nie pobrał paczki przez stream.exportIdleTimeoutMs, jest zamykany.
+final class GradebookExports {
+    private final int maxOpen;
+    private final long idleTimeoutNanos;
+    private final Set<GradebookExportCursor> open = new HashSet<>();
+    private final ScheduledExecutorService reaper;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder idleClosed = new LongAdder();
+
+    private GradebookExports(int maxOpen, long idleTimeoutMillis) {
+        this.maxOpen = Math.max(1, maxOpen);
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, idleTimeoutMillis));
+        this.reaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "export-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos) / 4);
+        reaper.scheduleWithFixedDelay(this::closeIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    static GradebookExports configure(Properties fileProps) {
+        int poolSize = Integer.parseInt(fileProps.getProperty("db.pool.maxSize", "10"));
+        return new GradebookExports(
+                Integer.parseInt(fileProps.getProperty("stream.maxExports", String.valueOf(Math.max(1, poolSize / 2)))),
+                Long.parseLong(fileProps.getProperty("stream.exportIdleTimeoutMs", "60000")));
+    }
+
+    long idleTimeoutNanos() {
+        return idleTimeoutNanos;
+    }
+
+    // Przed otwarciem transakcji kursora - przy komplecie eksportów klient od razu dostaje błąd
+    synchronized void register(GradebookExportCursor cursor) throws RemoteException {
+        if (open.size() >= maxOpen) {
+            rejected.increment();
+            throw new RemoteException("Serwer przeciążony: otwartych eksportów dziennika jest już " + maxOpen
+                    + ", spróbuj ponownie później");
+        }
+        open.add(cursor);
+    }
+
+    synchronized void unregister(GradebookExportCursor cursor) {
+        open.remove(cursor);
+    }
+
+    private synchronized List<GradebookExportCursor> snapshot() {
+        return new ArrayList<>(open);
+    }
+
+    private void closeIdle() {
+        long now = System.nanoTime();
+        for (GradebookExportCursor cursor : snapshot()) {
+            try {
+                if (cursor.closeIfIdle(now)) idleClosed.increment();
+            } catch (RuntimeException e) {
+                System.out.println("Błąd zamykania bezczynnego eksportu: " + e.getMessage());
+            }
+        }
+    }
+
+    void addGauges(Map<String, Number> gauges) {
+        synchronized (this) {
+            gauges.put("stream.openExports", open.size());
+        }
+        gauges.put("stream.exportsRejected", rejected.sum());
+        gauges.put("stream.exportsIdleClosed", idleClosed.sum());
+    }
+
+    void shutdown() {
+        reaper.shutdownNow();
+        for (GradebookExportCursor cursor : snapshot()) cursor.close();
+    }
+}
@@ -0,0 +1,70 @@
+package com.studentmanager.server;
+
+import com.studentmanager.shared.GradebookImport;
+import com.studentmanager.shared.GradebookRow;
+import com.studentmanager.shared.ImportReport;
+import com.studentmanager.shared.ImportRowResult;
+
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.rmi.server.Unreferenced;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+// Odbiorca importu dziennika - każda paczka od klienta trafia do BulkImporter (transakcje po import.chunkSize wierszy).
+// Paczki przechodzą przez CallGate jak zapisy StudentService (limit zapisów, pomiary, okno read-your-writes).
+class GradebookImportSink extends UnicastRemoteObject implements GradebookImport, Unreferenced {
+    private final BulkImporter importer;
+    private final Set<GradebookImport> open;
+    private final CallGate gate;
+    private int rowOffset;
+    private boolean closed;
+
+    GradebookImportSink(BulkImporter importer, Set<GradebookImport> open, CallGate gate) throws RemoteException {
+        super();
+        this.importer = importer;
+        this.open = open;
+        this.gate = gate;
+        open.add(this);
+    }
+
+    @Override
+    public ImportReport write(List<GradebookRow> rows) throws RemoteException {
+        return gate.call("importGradebook.write", true, () -> importChunk(rows));
+    }
+
+    private synchronized ImportReport importChunk(List<GradebookRow> rows) throws RemoteException {
+        if (closed) throw new RemoteException("Import został już zamknięty");
+        try {
+            ImportReport report = importer.importGradebook(rows);
+            // Numery wierszy względem całego importu, nie paczki
+            List<ImportRowResult> shifted = new ArrayList<>(report.getRows().size());
+            for (ImportRowResult r : report.getRows()) {
+                shifted.add(r.isSuccess() ? ImportRowResult.ok(r.getRow() + rowOffset, r.getId())
+                        : ImportRowResult.failed(r.getRow() + rowOffset, r.getError()));
+            }
+            rowOffset += rows.size();
+            return new ImportReport(shifted);
+        } catch (Exception e) {
+            throw new RemoteException("Błąd importu dziennika: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        open.remove(this);
+        try {
+            UnicastRemoteObject.unexportObject(this, true);
+        } catch (Exception ignored) {
+            // już usunięty
+        }
+    }
+
+    @Override
+    public void unreferenced() {
+        close();
+    }
+}
@@ -0,0 +1,53 @@
+package com.studentmanager.server;
+
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+// Migracja 1.1 - ustawia sekwencje id za największym id w tabelach.
+// Bazy z hbm2ddl przy GenerationType.IDENTITY mają sekwencje z krokiem 1 stojące przy ostatnim id (PostgreSQL)
+// albo nie mają ich wcale (H2, sekwencje zakłada dopiero V1). Hibernate (optymalizator pooled, allocationSize=50)
+// traktuje pobraną wartość jako koniec puli 50 id, więc sekwencja startuje od MAX(id) + 50.
+// Wartość zależy od danych, a PostgreSQL nie przyjmuje podzapytania w RESTART WITH - stąd migracja w Javie.
+final class IdSequenceMigration implements JavaMigration {
+    private static final int ALLOCATION_SIZE = 50;
+    private static final String[] TABLES = {"students", "courses", "grades", "tombstones"};
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("1.1");
+    }
+
+    @Override
+    public String getDescription() {
+        return "id sequences";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            for (String table : TABLES) {
+                long max;
+                try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+                    rs.next();
+                    max = rs.getLong(1);
+                }
+                statement.execute("ALTER SEQUENCE " + table + "_id_seq INCREMENT BY " + ALLOCATION_SIZE);
+                statement.execute("ALTER SEQUENCE " + table + "_id_seq RESTART WITH " + (max + ALLOCATION_SIZE));
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.studentmanager.server;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+// Rejestracja obiektów w platformowym MBeanServer (domena com.studentmanager)
+final class Jmx {
+    private Jmx() {}
+
+    static void register(Object bean, String properties) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("com.studentmanager:" + properties);
+            // Kolejna instancja serwera w tej samej JVM zastępuje poprzednią
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+            server.registerMBean(bean, name);
+        } catch (Exception e) {
+            System.out.println("Nie udało się zarejestrować MBean " + properties + ": " + e.getMessage());
+        }
+    }
+}
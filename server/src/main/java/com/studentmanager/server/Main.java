@@ -1,17 +1,31 @@
 package com.studentmanager.server;
 
-import com.studentmanager.shared.StudentService;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 
 public class Main {
     public static void main(String[] args) {
+        long start = System.nanoTime();
         try {
             System.setProperty("java.rmi.server.hostname", "localhost"); // Lub IP serwera
+            // Limit czasu odpowiedzi klienta przy wysyłaniu powiadomień (callback RMI)
+            if (System.getProperty("sun.rmi.transport.tcp.responseTimeout") == null) {
+                System.setProperty("sun.rmi.transport.tcp.responseTimeout", "10000");
+            }
             Registry registry = LocateRegistry.createRegistry(1099);
-            StudentService service = new ServerImpl();
+            ServerImpl service = new ServerImpl();
             registry.rebind("StudentService", service);
-            System.out.println("Serwer gotowy i nasłuchuje na porcie 1099...");
+            // Czas zimnego startu: od wejścia do main do zarejestrowania usługi (migracje, Hibernate, rozgrzewka)
+            System.out.println("Serwer gotowy i nasłuchuje na porcie 1099 (start "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms)...");
+
+            // Transport NIO dla klientów z -Dstudentmanager.transport=nio (port 0 - wyłączony)
+            int nioPort = Integer.getInteger("studentmanager.nio.port", 1100);
+            if (nioPort > 0) {
+                service.startNioServer(nioPort, Integer.getInteger("studentmanager.nio.workers", 32),
+                        Integer.getInteger("studentmanager.nio.maxInFlight", 64));
+                System.out.println("Transport NIO nasłuchuje na porcie " + nioPort + "...");
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
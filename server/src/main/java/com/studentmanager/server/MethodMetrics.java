@@ -0,0 +1,83 @@
+package com.studentmanager.server;
+
+import com.studentmanager.shared.MethodStats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class MethodMetrics implements MethodMetricsMXBean {
+    // Przepustowość liczona z ostatnich RATE_WINDOW sekund
+    private static final int RATE_WINDOW = 60;
+
+    private final String method;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Long::max, 0);
+
+    // Liczniki wywołań per sekunda w buforze cyklicznym; seconds[i] - sekunda, do której należy counts[i]
+    private final AtomicLongArray secondCounts = new AtomicLongArray(RATE_WINDOW);
+    private final AtomicLongArray seconds = new AtomicLongArray(RATE_WINDOW);
+
+    MethodMetrics(String method) {
+        this.method = method;
+    }
+
+    void record(long nanos, boolean failed) {
+        long micros = nanos / 1000;
+        histogram.record(micros);
+        count.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulate(micros);
+        if (failed) errors.increment();
+
+        long second = System.currentTimeMillis() / 1000;
+        int slot = (int) (second % RATE_WINDOW);
+        long slotSecond = seconds.get(slot);
+        if (slotSecond != second && seconds.compareAndSet(slot, slotSecond, second)) {
+            secondCounts.set(slot, 0);
+        }
+        secondCounts.incrementAndGet(slot);
+    }
+
+    MethodStats snapshot() {
+        return new MethodStats(method, getCount(), getErrors(), getCallsPerSecond(),
+                getMeanMicros(), getP50Micros(), getP99Micros(), getMaxMicros());
+    }
+
+    @Override
+    public long getCount() { return count.sum(); }
+
+    @Override
+    public long getErrors() { return errors.sum(); }
+
+    @Override
+    public double getCallsPerSecond() {
+        long now = System.currentTimeMillis() / 1000;
+        long calls = 0;
+        for (int i = 0; i < RATE_WINDOW; i++) {
+            // Pomijamy bieżącą, niepełną sekundę
+            long second = seconds.get(i);
+            if (second < now && second >= now - RATE_WINDOW) calls += secondCounts.get(i);
+        }
+        return (double) calls / RATE_WINDOW;
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long n = count.sum();
+        return n == 0 ? 0.0 : (double) totalMicros.sum() / n;
+    }
+
+    // Górna granica kubełka histogramu może przekraczać faktyczne maksimum
+    @Override
+    public long getP50Micros() { return Math.min(histogram.percentile(0.50), getMaxMicros()); }
+
+    @Override
+    public long getP99Micros() { return Math.min(histogram.percentile(0.99), getMaxMicros()); }
+
+    @Override
+    public long getMaxMicros() { return maxMicros.get(); }
+}
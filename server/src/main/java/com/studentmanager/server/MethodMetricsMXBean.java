@@ -0,0 +1,12 @@
+package com.studentmanager.server;
+
+// Metryki jednej metody StudentService widoczne przez JMX (czasy w mikrosekundach)
+public interface MethodMetricsMXBean {
+    long getCount();
+    long getErrors();
+    double getCallsPerSecond();
+    double getMeanMicros();
+    long getP50Micros();
+    long getP99Micros();
+    long getMaxMicros();
+}
@@ -0,0 +1,286 @@
+package com.studentmanager.server;
+
+import com.studentmanager.shared.NioProtocol;
+import com.studentmanager.shared.StudentService;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Drugi punkt wejścia serwera obok RMI: binarny protokół NioProtocol na NIO.
+// Jeden wątek selektora przyjmuje połączenia, czyta ramki i wysyła odpowiedzi; żądania wykonuje pula wątków,
+// więc żądania jednego klienta (pipelining) są obsługiwane równolegle, a odpowiedzi wracają w kolejności gotowości.
+// Wątki robocze nie piszą do gniazda - odpowiedź trafia do kolejki połączenia, a selektor wysyła zebrane
+// odpowiedzi jednym zapisem. Klient z maxInFlight niezakończonymi żądaniami przestaje być czytany, dopóki
+// ich nie odbierze.
+class NioServer {
+    private static final int READ_BUFFER = 64 * 1024;
+    // Najwięcej buforów wysyłanych jednym zapisem (gathering write)
+    private static final int MAX_GATHER = 64;
+    // Niewysłane powiadomienia ponad ten rozmiar - klient nie odbiera i traci subskrypcję
+    private static final long MAX_PENDING_PUSH_BYTES = 16 * 1024 * 1024;
+
+    class Connection {
+        final SocketChannel channel;
+        final NioSession session;
+        SelectionKey key;
+        // Bufor odczytu - rośnie do rozmiaru największej ramki
+        ByteBuffer in = ByteBuffer.allocate(READ_BUFFER);
+        final Queue<ByteBuffer> out = new ConcurrentLinkedQueue<>();
+        final AtomicLong pendingBytes = new AtomicLong();
+        final AtomicInteger inFlight = new AtomicInteger();
+        // Połączenie czeka już w dirty na obsłużenie przez selektor
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        volatile boolean closed;
+
+        Connection(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.session = new NioSession(service, this, "nio:" + channel.getRemoteAddress());
+        }
+
+        void send(ByteBuffer frame) {
+            if (closed) return;
+            pendingBytes.addAndGet(frame.remaining());
+            out.add(frame);
+            schedule();
+        }
+
+        // false - połączenie zamknięte albo klient zalega z odbiorem
+        boolean push(ByteBuffer frame) {
+            if (closed || pendingBytes.get() > MAX_PENDING_PUSH_BYTES) return false;
+            send(frame);
+            return true;
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                dirty.add(this);
+                selector.wakeup();
+            }
+        }
+    }
+
+    private final StudentService service;
+    private final int maxInFlight;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final ExecutorService workers;
+    private final Queue<Connection> dirty = new ConcurrentLinkedQueue<>();
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final Thread selectorThread;
+    private volatile boolean running = true;
+
+    private final LongAdder requests = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    NioServer(StudentService service, int port, int workerThreads, int maxInFlight) throws IOException {
+        this.service = service;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workerThreads), r -> {
+            Thread t = new Thread(r, "nio-worker-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.selectorThread = new Thread(this::run, "nio-selector");
+        selectorThread.start();
+    }
+
+    int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    void addGauges(Map<String, Number> gauges) {
+        gauges.put("nio.connections", connections.size());
+        gauges.put("nio.inFlight", inFlight.get());
+        gauges.put("nio.requests", requests.sum());
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.shutdown();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                Connection pending;
+                while ((pending = dirty.poll()) != null) {
+                    pending.scheduled.set(false);
+                    try {
+                        if (pending.closed) {
+                            close(pending);
+                        } else {
+                            flush(pending);
+                            updateInterest(pending);
+                        }
+                    } catch (IOException | CancelledKeyException e) {
+                        close(pending);
+                    }
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isWritable()) flush(connection);
+                        if (key.isValid() && key.isReadable()) read(connection);
+                        if (!connection.closed) updateInterest(connection);
+                    } catch (IOException | CancelledKeyException e) {
+                        close(connection);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Serwer NIO zatrzymany: " + e.getMessage());
+        } finally {
+            for (Connection connection : connections) close(connection);
+            try {
+                serverChannel.close();
+                selector.close();
+            } catch (IOException ignored) {
+                // zamykanie
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        connections.add(connection);
+    }
+
+    // Czyta dostępne dane i przekazuje pełne ramki do puli wątków
+    private void read(Connection connection) throws IOException {
+        if (connection.channel.read(connection.in) < 0) {
+            close(connection);
+            return;
+        }
+        ByteBuffer in = connection.in;
+        in.flip();
+        while (in.remaining() >= 4) {
+            int length = in.getInt(in.position());
+            if (length < NioProtocol.FRAME_HEADER || length > NioProtocol.MAX_REQUEST_FRAME) {
+                throw new IOException("Nieprawidłowa długość ramki: " + length);
+            }
+            if (in.remaining() < 4 + length) {
+                // Ramka większa niż bufor - powiększamy go, żeby zmieściła się w całości
+                if (4 + length > in.capacity()) {
+                    ByteBuffer bigger = ByteBuffer.allocate(4 + length);
+                    bigger.put(in);
+                    connection.in = bigger;
+                    return;
+                }
+                break;
+            }
+            in.getInt();
+            long id = in.getLong();
+            byte op = in.get();
+            byte[] body = new byte[length - NioProtocol.FRAME_HEADER];
+            in.get(body);
+            dispatch(connection, id, op, body);
+        }
+        in.compact();
+        // Po dużej ramce wracamy do zwykłego bufora
+        if (in.capacity() > READ_BUFFER && in.position() <= READ_BUFFER) {
+            in.flip();
+            connection.in = ByteBuffer.allocate(READ_BUFFER).put(in);
+        }
+    }
+
+    private void dispatch(Connection connection, long id, byte op, byte[] body) {
+        requests.increment();
+        inFlight.incrementAndGet();
+        connection.inFlight.incrementAndGet();
+        workers.execute(() -> {
+            try {
+                connection.send(connection.session.handle(id, op, body));
+            } catch (Throwable e) {
+                // Nie udało się nawet zbudować odpowiedzi (np. za duża ramka) - klient nie dostałby odpowiedzi
+                System.err.println("Błąd obsługi żądania NIO: " + e.getMessage());
+                closeLater(connection);
+            } finally {
+                inFlight.decrementAndGet();
+                // Odblokowanie odczytu, jeśli połączenie osiągnęło limit
+                if (connection.inFlight.getAndDecrement() >= maxInFlight) connection.schedule();
+            }
+        });
+    }
+
+    // Wysyła odpowiedzi z kolejki; niewysłana reszta czeka na OP_WRITE
+    private void flush(Connection connection) throws IOException {
+        ByteBuffer[] batch = new ByteBuffer[MAX_GATHER];
+        while (true) {
+            int count = 0;
+            for (ByteBuffer frame : connection.out) {
+                batch[count++] = frame;
+                if (count == MAX_GATHER) break;
+            }
+            if (count == 0) return;
+            long written = connection.channel.write(batch, 0, count);
+            connection.pendingBytes.addAndGet(-written);
+            for (int i = 0; i < count && !batch[i].hasRemaining(); i++) connection.out.poll();
+            if (batch[count - 1].hasRemaining()) return;
+        }
+    }
+
+    private void updateInterest(Connection connection) {
+        int ops = 0;
+        if (connection.inFlight.get() < maxInFlight) ops |= SelectionKey.OP_READ;
+        if (!connection.out.isEmpty()) ops |= SelectionKey.OP_WRITE;
+        if (connection.key.isValid() && connection.key.interestOps() != ops) connection.key.interestOps(ops);
+    }
+
+    // Zamknięcie zlecone z wątku roboczego - wykonuje je selektor
+    private void closeLater(Connection connection) {
+        connection.closed = true;
+        connection.schedule();
+    }
+
+    private void close(Connection connection) {
+        if (!connections.remove(connection)) return;
+        connection.closed = true;
+        if (connection.key != null) connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException ignored) {
+            // już zamknięte
+        }
+        // Zamknięcie sesji odwołuje się do bazy (kursory eksportu) - poza wątkiem selektora
+        if (running) workers.execute(connection.session::close);
+        else connection.session.close();
+    }
+}
@@ -0,0 +1,206 @@
+package com.studentmanager.server;
+
+import com.studentmanager.shared.*;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.rmi.RemoteException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Żądania jednego połączenia NIO wykonywane na StudentService (te same metody i pomiary co przez RMI).
+// Sesja jest też subskrybentem zmian połączenia, a eksporty i importy dziennika trzyma jako uchwyty -
+// wszystko jest zamykane razem z połączeniem.
+class NioSession implements StudentChangeListener {
+    private final StudentService service;
+    private final NioServer.Connection connection;
+    // Klient w oknie read-your-writes - każde połączenie osobno
+    private final String clientId;
+    private final AtomicLong handles = new AtomicLong();
+    private final Map<Long, GradebookExport> exports = new ConcurrentHashMap<>();
+    private final Map<Long, GradebookImport> imports = new ConcurrentHashMap<>();
+    private volatile boolean subscribed;
+
+    NioSession(StudentService service, NioServer.Connection connection, String clientId) {
+        this.service = service;
+        this.connection = connection;
+        this.clientId = clientId;
+    }
+
+    // Odpowiedź na żądanie; błąd wywołania jest odsyłany klientowi jako STATUS_ERROR z komunikatem
+    ByteBuffer handle(long id, byte op, byte[] body) throws IOException {
+        NioProtocol.Frame reply = new NioProtocol.Frame(id, NioProtocol.STATUS_OK);
+        ClientIdentity.set(clientId);
+        try {
+            execute(op, new NioProtocol.FrameInput(body), reply.out);
+            return reply.finish();
+        } catch (Throwable e) {
+            // Także błędy JVM (np. brak pamięci przy dekodowaniu) - klient nie może czekać na odpowiedź do limitu czasu
+            NioProtocol.Frame error = new NioProtocol.Frame(id, NioProtocol.STATUS_ERROR);
+            NioProtocol.writeError(error.out, e);
+            return error.finish();
+        } finally {
+            ClientIdentity.clear();
+        }
+    }
+
+    private void execute(byte op, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (op) {
+            case NioProtocol.GET_ALL_STUDENTS:
+                NioProtocol.writeStudents(out, service.getAllStudents());
+                break;
+            case NioProtocol.GET_STUDENTS_PAGE:
+                NioProtocol.writePage(out, service.getStudentsPage(NioProtocol.readCursor(in), in.readInt()));
+                break;
+            case NioProtocol.SEARCH_STUDENTS:
+                NioProtocol.writeStudents(out, service.searchStudents(NioProtocol.readString(in), in.readInt()));
+                break;
+            case NioProtocol.GET_GRADES:
+                NioProtocol.writeGrades(out, service.getGradesForStudent(NioProtocol.readLong(in)));
+                break;
+            case NioProtocol.GET_GRADES_BATCH:
+                NioProtocol.writeGradesByStudent(out, service.getGradesForStudents(NioProtocol.readIds(in)));
+                break;
+            case NioProtocol.ADD_STUDENT:
+                service.addStudent(NioProtocol.readStudent(in));
+                break;
+            case NioProtocol.REMOVE_STUDENT:
+                service.removeStudent(NioProtocol.readLong(in));
+                break;
+            case NioProtocol.ADD_COURSE:
+                service.addCourse(NioProtocol.readString(in));
+                break;
+            case NioProtocol.ADD_GRADE:
+                service.addGrade(NioProtocol.readLong(in), NioProtocol.readString(in), in.readInt());
+                break;
+            case NioProtocol.REMOVE_GRADE:
+                service.removeGrade(NioProtocol.readLong(in), NioProtocol.readString(in));
+                break;
+            case NioProtocol.ADD_STUDENTS:
+                NioProtocol.writeReport(out, service.addStudents(NioProtocol.readStudents(in)));
+                break;
+            case NioProtocol.ADD_GRADES:
+                NioProtocol.writeReport(out, service.addGrades(NioProtocol.readGradeEntries(in)));
+                break;
+            case NioProtocol.EXPORT_OPEN: {
+                long handle = handles.incrementAndGet();
+                exports.put(handle, service.exportGradebook(in.readInt()));
+                out.writeLong(handle);
+                break;
+            }
+            case NioProtocol.EXPORT_NEXT: {
+                long handle = in.readLong();
+                List<GradebookRow> rows = export(handle).nextChunk();
+                // Pusta paczka - kursor zamknął się sam
+                if (rows.isEmpty()) exports.remove(handle);
+                NioProtocol.writeGradebookRows(out, rows);
+                break;
+            }
+            case NioProtocol.EXPORT_CLOSE: {
+                GradebookExport export = exports.remove(in.readLong());
+                if (export != null) export.close();
+                break;
+            }
+            case NioProtocol.IMPORT_OPEN: {
+                long handle = handles.incrementAndGet();
+                imports.put(handle, service.importGradebook());
+                out.writeLong(handle);
+                break;
+            }
+            case NioProtocol.IMPORT_WRITE: {
+                GradebookImport sink = imports.get(in.readLong());
+                if (sink == null) throw new RemoteException("Import został już zamknięty");
+                NioProtocol.writeReport(out, sink.write(NioProtocol.readGradebookRows(in)));
+                break;
+            }
+            case NioProtocol.IMPORT_CLOSE: {
+                GradebookImport sink = imports.remove(in.readLong());
+                if (sink != null) sink.close();
+                break;
+            }
+            case NioProtocol.STUDENT_STATS:
+                NioProtocol.writeStudentStats(out, service.getStudentStats(NioProtocol.readLong(in)));
+                break;
+            case NioProtocol.COURSE_STATS:
+                NioProtocol.writeCourseStats(out, service.getCourseStats(NioProtocol.readString(in)));
+                break;
+            case NioProtocol.ALL_COURSE_STATS:
+                NioProtocol.writeCourseStatsList(out, service.getAllCourseStats());
+                break;
+            case NioProtocol.COURSE_RANKING:
+                NioProtocol.writeRankingPage(out, service.getCourseRanking(NioProtocol.readRankingCursor(in), in.readInt()));
+                break;
+            case NioProtocol.STUDENTS_BELOW:
+                NioProtocol.writeRankingEntries(out,
+                        service.getStudentsBelow(NioProtocol.readString(in), in.readDouble(), in.readInt()));
+                break;
+            case NioProtocol.CHANGES_SINCE:
+                NioProtocol.writeChangeLog(out, service.getStudentsChangedSince(in.readLong()));
+                break;
+            case NioProtocol.SUBSCRIBE:
+                service.subscribe(this);
+                subscribed = true;
+                break;
+            case NioProtocol.UNSUBSCRIBE:
+                subscribed = false;
+                service.unsubscribe(this);
+                break;
+            case NioProtocol.SERVER_STATS:
+                NioProtocol.writeServerStats(out, service.getServerStats());
+                break;
+            default:
+                throw new RemoteException("Nieznana operacja: " + op);
+        }
+    }
+
+    private GradebookExport export(long handle) throws RemoteException {
+        GradebookExport export = exports.get(handle);
+        if (export == null) throw new RemoteException("Eksport został już zamknięty");
+        return export;
+    }
+
+    // Wywoływane przez ChangeNotifier - wyjątek usuwa subskrypcję rozłączonego albo zalegającego klienta
+    @Override
+    public void onChanges(List<ChangeEvent> events) throws RemoteException {
+        try {
+            NioProtocol.Frame push = new NioProtocol.Frame(NioProtocol.PUSH_ID, NioProtocol.PUSH_CHANGES);
+            NioProtocol.writeEvents(push.out, events);
+            if (!connection.push(push.finish())) {
+                throw new RemoteException("Klient nie odbiera powiadomień");
+            }
+        } catch (IOException e) {
+            throw new RemoteException("Błąd wysyłania zmian: " + e.getMessage(), e);
+        }
+    }
+
+    void close() {
+        if (subscribed) {
+            subscribed = false;
+            try {
+                service.unsubscribe(this);
+            } catch (RemoteException ignored) {
+                // subskrybent i tak zostanie usunięty przy pierwszej nieudanej wysyłce
+            }
+        }
+        for (GradebookExport export : exports.values()) {
+            try {
+                export.close();
+            } catch (RemoteException ignored) {
+                // zamknięty przez serwer
+            }
+        }
+        for (GradebookImport sink : imports.values()) {
+            try {
+                sink.close();
+            } catch (RemoteException ignored) {
+                // zamknięty przez serwer
+            }
+        }
+        exports.clear();
+        imports.clear();
+    }
+}
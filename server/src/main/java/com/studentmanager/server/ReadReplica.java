@@ -0,0 +1,133 @@
+package com.studentmanager.server;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Opcjonalna replika tylko do odczytu (db.replica.url) - osobna jednostka StudentReadPU z własną pulą połączeń.
+// ServerImpl kieruje na nią odczyty list studentów, ocen i eksport dziennika; zapisy i synchronizacja zmian
+// zostają na bazie głównej.
+// Klient, który niedawno coś zapisał (db.replica.readYourWritesMs), czyta z bazy głównej, żeby opóźnienie
+// replikacji nie ukryło jego własnej zmiany. Błąd repliki przełącza odczyty na bazę główną na retryAfterMs.
+final class ReadReplica {
+    // Powyżej tylu klientów w mapie ostatnich zapisów usuwamy wpisy spoza okna
+    private static final int PURGE_THRESHOLD = 10_000;
+
+    private final ConnectionPool pool;
+    private final EntityManagerFactory emf;
+    private final long readYourWritesNanos;
+    private final long retryAfterNanos;
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+    // Do tej chwili (System.nanoTime) replika jest pomijana po błędzie
+    private volatile long downUntil;
+    private volatile boolean down;
+
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder ownWriteReads = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    private ReadReplica(ConnectionPool pool, EntityManagerFactory emf, long readYourWritesMillis, long retryAfterMillis) {
+        this.pool = pool;
+        this.emf = emf;
+        this.readYourWritesNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, readYourWritesMillis));
+        this.retryAfterNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, retryAfterMillis));
+    }
+
+    // null, gdy replika nie jest skonfigurowana
+    static ReadReplica configure(Properties fileProps) {
+        if (fileProps.getProperty("db.replica.url") == null) return null;
+        Properties replicaProps = new Properties();
+        replicaProps.putAll(fileProps);
+        // Połączenia repliki tylko do odczytu, chyba że podano inaczej
+        replicaProps.putIfAbsent("db.replica.readOnly", "true");
+        ConnectionPool pool = new ConnectionPool("replica", replicaProps, "db.replica.");
+
+        Map<String, Object> jpaProps = new HashMap<>();
+        jpaProps.put("hibernate.connection.datasource", pool.getDataSource());
+        jpaProps.put("hibernate.connection.provider_disables_autocommit", "true");
+        jpaProps.put("hibernate.cache.use_second_level_cache", "false");
+        // Schematem repliki zarządza replikacja; dwie bazy wbudowane (testy) mogą użyć db.replica.schema=update
+        jpaProps.put("hibernate.hbm2ddl.auto", fileProps.getProperty("db.replica.schema", "none"));
+        String dialect = fileProps.getProperty("db.replica.dialect", fileProps.getProperty("db.dialect"));
+        if (dialect != null) jpaProps.put("hibernate.dialect", dialect);
+        if (fileProps.getProperty("db.showSql") != null) {
+            jpaProps.put("hibernate.show_sql", fileProps.getProperty("db.showSql"));
+        }
+        EntityManagerFactory emf;
+        try {
+            emf = Persistence.createEntityManagerFactory("StudentReadPU", jpaProps);
+        } catch (RuntimeException e) {
+            pool.close();
+            throw e;
+        }
+        long readYourWritesMillis = Long.parseLong(fileProps.getProperty("db.replica.readYourWritesMs", "1000"));
+        System.out.println("Replika do odczytu: " + fileProps.getProperty("db.replica.url")
+                + ", okno read-your-writes " + readYourWritesMillis + " ms");
+        return new ReadReplica(pool, emf, readYourWritesMillis,
+                Long.parseLong(fileProps.getProperty("db.replica.retryAfterMs", "5000")));
+    }
+
+    EntityManagerFactory getEntityManagerFactory() {
+        return emf;
+    }
+
+    // Czy odczyt bieżącego klienta może iść do repliki
+    boolean route() {
+        if (down) {
+            if (System.nanoTime() - downUntil < 0) return false;
+            down = false;
+        }
+        if (readYourWritesNanos > 0) {
+            String client = ClientIdentity.current();
+            Long written = lastWrites.get(client);
+            if (written != null) {
+                if (System.nanoTime() - written < readYourWritesNanos) {
+                    ownWriteReads.increment();
+                    return false;
+                }
+                lastWrites.remove(client, written);
+            }
+        }
+        replicaReads.increment();
+        return true;
+    }
+
+    // Zapis bieżącego klienta zatwierdzony na bazie głównej
+    void written() {
+        if (readYourWritesNanos == 0) return;
+        long now = System.nanoTime();
+        lastWrites.put(ClientIdentity.current(), now);
+        if (lastWrites.size() > PURGE_THRESHOLD) {
+            lastWrites.values().removeIf(written -> now - written >= readYourWritesNanos);
+        }
+    }
+
+    // Odczyt z repliki się nie udał - ServerImpl powtarza go na bazie głównej
+    void failed(RuntimeException e) {
+        fallbacks.increment();
+        if (retryAfterNanos > 0 && !down) {
+            downUntil = System.nanoTime() + retryAfterNanos;
+            down = true;
+            System.out.println("Replika niedostępna, odczyty z bazy głównej: " + e.getMessage());
+        }
+    }
+
+    void addGauges(Map<String, Number> gauges) {
+        gauges.put("replica.reads", replicaReads.sum());
+        gauges.put("replica.readYourWrites", ownWriteReads.sum());
+        gauges.put("replica.fallbacks", fallbacks.sum());
+        gauges.put("replica.down", down ? 1 : 0);
+        gauges.put("replica.pool.active", pool.getActiveConnections());
+        gauges.put("replica.pool.waiting", pool.getThreadsAwaitingConnection());
+    }
+
+    void close() {
+        emf.close();
+        pool.close();
+    }
+}
@@ -0,0 +1,42 @@
+package com.studentmanager.server;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.flywaydb.core.api.output.MigrateResult;
+
+import javax.sql.DataSource;
+import java.util.Properties;
+
+// Wersjonowane migracje schematu (Flyway, pliki db/migration/V<n>__opis.sql w zasobach serwera).
+// Wykonywane przed startem Hibernate, który nie sprawdza już schematu (hbm2ddl=none).
+// Flyway zapisuje sumy kontrolne wykonanych plików - zmieniony po wdrożeniu plik zatrzymuje start serwera,
+// więc poprawki schematu zawsze idą w nowej wersji.
+final class SchemaMigrations {
+    private SchemaMigrations() {}
+
+    static void migrate(DataSource dataSource) {
+        run(Flyway.configure().dataSource(dataSource));
+    }
+
+    // db.pool=none - połączenie wprost z danych db.properties
+    static void migrate(Properties fileProps) {
+        run(Flyway.configure().dataSource(fileProps.getProperty("db.url"),
+                fileProps.getProperty("db.user"), fileProps.getProperty("db.password")));
+    }
+
+    private static void run(FluentConfiguration config) {
+        long start = System.nanoTime();
+        MigrateResult result = config
+                .locations("classpath:db/migration")
+                .javaMigrations(new IdSequenceMigration())
+                // Baza założona wcześniej przez hbm2ddl=update (bez historii migracji) dostaje wersję 0 - V1 uzupełnia
+                // jej brakujące kolumny i tabele, a migracja 1.1 przestawia sekwencje za istniejące id
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load()
+                .migrate();
+        System.out.println("Migracje schematu: wykonano " + result.migrationsExecuted + ", wersja "
+                + (result.targetSchemaVersion != null ? result.targetSchemaVersion : result.initialSchemaVersion)
+                + " (" + (System.nanoTime() - start) / 1_000_000 + " ms)");
+    }
+}
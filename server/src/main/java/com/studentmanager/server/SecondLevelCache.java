@@ -0,0 +1,113 @@
+package com.studentmanager.server;
+
+import com.studentmanager.shared.Course;
+import com.studentmanager.shared.Student;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.expiry.ExpiryPolicy;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.persistence.EntityManagerFactory;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Opcjonalny cache drugiego poziomu Hibernate (Ehcache przez JCache) dla rzadko zmienianych encji Course i Student
+// oraz cache wyników zapytań oznaczonych jako cacheable (przedmiot po nazwie).
+// Włączany przez cache.l2.enabled=true; regiony są tworzone w kodzie z limitem wpisów i czasem życia.
+// Zapytania DELETE/UPDATE w JPQL unieważniają region swojej encji i znaczniki czasu tabeli (cache zapytań),
+// więc np. DELETE FROM Grade nie usuwa z cache studentów ani przedmiotów.
+final class SecondLevelCache {
+    private static final String[] ENTITY_REGIONS = {Course.class.getName(), Student.class.getName()};
+    private static final String QUERY_REGION = "default-query-results-region";
+    private static final String TIMESTAMPS_REGION = "default-update-timestamps-region";
+    // Każda instancja serwera w JVM (benchmarki) dostaje własny CacheManager
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    private final CacheManager cacheManager;
+    private Statistics statistics;
+
+    private SecondLevelCache(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    // Uzupełnia ustawienia JPA; null, gdy cache jest wyłączony
+    static SecondLevelCache configure(Properties fileProps, Map<String, Object> jpaProps) {
+        if (!Boolean.parseBoolean(fileProps.getProperty("cache.l2.enabled", "false"))) {
+            jpaProps.put("hibernate.cache.use_second_level_cache", "false");
+            return null;
+        }
+        long maxEntries = Long.parseLong(fileProps.getProperty("cache.l2.maxEntries", "10000"));
+        long queryMaxEntries = Long.parseLong(fileProps.getProperty("cache.l2.queryMaxEntries", "1000"));
+        long ttlSeconds = Long.parseLong(fileProps.getProperty("cache.l2.ttlSeconds", "600"));
+        ExpiryPolicy<Object, Object> expiry = ttlSeconds > 0
+                ? ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(ttlSeconds))
+                : ExpiryPolicyBuilder.noExpiration();
+
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        ClassLoader classLoader = SecondLevelCache.class.getClassLoader();
+        CacheManager cacheManager = provider.getCacheManager(
+                URI.create("urn:studentmanager:l2:" + INSTANCES.incrementAndGet()), new DefaultConfiguration(classLoader));
+        // Po przekroczeniu limitu Ehcache usuwa wpisy dawno nieużywane (przybliżone LRU)
+        for (String region : ENTITY_REGIONS) createRegion(cacheManager, region, maxEntries, expiry);
+        createRegion(cacheManager, QUERY_REGION, queryMaxEntries, expiry);
+        // Znaczniki czasu zmian tabel nie mogą wygasać - bez nich cache zapytań zwracałby nieaktualne wyniki
+        createRegion(cacheManager, TIMESTAMPS_REGION, 1000, ExpiryPolicyBuilder.noExpiration());
+
+        jpaProps.put("hibernate.cache.use_second_level_cache", "true");
+        jpaProps.put("hibernate.cache.use_query_cache", "true");
+        jpaProps.put("hibernate.cache.region.factory_class", "jcache");
+        jpaProps.put("hibernate.javax.cache.cache_manager", cacheManager);
+        // Brakujący region to błąd konfiguracji, a nie cache z ustawieniami domyślnymi
+        jpaProps.put("hibernate.javax.cache.missing_cache_strategy", "fail");
+        // Cache'owane są tylko encje z @Cacheable
+        jpaProps.put("javax.persistence.sharedCache.mode", "ENABLE_SELECTIVE");
+        jpaProps.put("hibernate.cache.default_cache_concurrency_strategy", "read-write");
+        jpaProps.put("hibernate.generate_statistics", "true");
+        // Bez wypisywania statystyk każdej sesji do logu
+        jpaProps.put("hibernate.session.events.log", "false");
+        System.out.println("Cache L2: " + maxEntries + " wpisów na encję, TTL " + ttlSeconds + " s");
+        return new SecondLevelCache(cacheManager);
+    }
+
+    private static void createRegion(CacheManager cacheManager, String name, long maxEntries, ExpiryPolicy<Object, Object> expiry) {
+        cacheManager.createCache(name, Eh107Configuration.fromEhcacheCacheConfiguration(
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                                ResourcePoolsBuilder.heap(Math.max(1, maxEntries)))
+                        .withExpiry(expiry)));
+    }
+
+    void bind(EntityManagerFactory emf) {
+        this.statistics = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    // Trafienia, chybienia i zapisy per region (l2.course.*, l2.student.*, l2.query.*) do strojenia rozmiaru i TTL
+    void addGauges(Map<String, Number> gauges) {
+        if (statistics == null) return;
+        for (String region : ENTITY_REGIONS) {
+            CacheRegionStatistics stats = statistics.getDomainDataRegionStatistics(region);
+            String prefix = "l2." + region.substring(region.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT) + ".";
+            gauges.put(prefix + "hits", stats.getHitCount());
+            gauges.put(prefix + "misses", stats.getMissCount());
+            gauges.put(prefix + "puts", stats.getPutCount());
+        }
+        gauges.put("l2.query.hits", statistics.getQueryCacheHitCount());
+        gauges.put("l2.query.misses", statistics.getQueryCacheMissCount());
+        gauges.put("l2.query.puts", statistics.getQueryCachePutCount());
+    }
+
+    void close() {
+        cacheManager.close();
+    }
+}
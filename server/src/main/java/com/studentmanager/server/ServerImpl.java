@@ -1,169 +1,786 @@
 package com.studentmanager.server;
 
 import com.studentmanager.shared.*;
+import org.hibernate.jpa.QueryHints;
+
 import javax.persistence.*;
+import java.io.IOException;
 import java.io.InputStream;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ServerImpl extends UnicastRemoteObject implements StudentService {
+    private static final int MAX_PAGE_SIZE = 500;
+    // Limit parametrów w jednym zapytaniu IN (getGradesForStudents)
+    private static final int MAX_IN_PARAMS = 1000;
+    // Największa paczka eksportu dziennika w jednym wywołaniu nextChunk()
+    private static final int MAX_STREAM_CHUNK = 10000;
+    // Liczba wierszy pobieranych przez sterownik JDBC naraz w zapytaniach do odczytu
+    private static final int READ_FETCH_SIZE = 500;
+
     private EntityManagerFactory emf;
+    private ConnectionPool connectionPool;
+    // null - wszystkie odczyty z bazy głównej
+    private ReadReplica readReplica;
+    private SecondLevelCache secondLevelCache;
+    private GradeCache gradeCache = new GradeCache(0);
+    private final EntityDirectory directory = new EntityDirectory();
+    private final StudentSearchIndex searchIndex = new StudentSearchIndex();
+    private final DataChangeListeners changeListeners = new DataChangeListeners();
+    private BulkImporter bulkImporter;
+    // null - każda ocena zapisywana własną transakcją
+    private GradeWritePipeline gradeWriter;
+    private GradeStatistics statistics;
+    private ChangeNotifier notifier;
+    private ChangeTracker changeTracker;
+    // Punkt wejścia NIO obok RMI (null - nieuruchomiony)
+    private NioServer nioServer;
+    // Limity równoczesnych odczytów i zapisów (null - admission.enabled=false)
+    private AdmissionControl admission;
+    private final ServerMetrics metrics = new ServerMetrics();
+    // Otwarte eksporty i importy dziennika - zamykane przy shutdown()
+    private GradebookExports exports;
+    private final Set<GradebookImport> openImports = ConcurrentHashMap.newKeySet();
+
+    // Treść metody zdalnej - mierzona przez timed()
+    private interface RemoteCall<T> {
+        T call() throws RemoteException;
+    }
+
+    private interface RemoteAction {
+        void run() throws RemoteException;
+    }
+
+    // Odczyt z bazy głównej albo repliki (replica=true)
+    private interface ReadQuery<T> {
+        T run(EntityManager em, boolean replica) throws RemoteException;
+    }
 
     protected ServerImpl() throws RemoteException {
+        this(loadProperties());
+    }
+
+    // Konfiguracja podana wprost (np. baza wbudowana w benchmarkach) zamiast db.properties
+    public ServerImpl(Properties fileProps) throws RemoteException {
         super();
-        Properties fileProps = new Properties();
-        try (InputStream input = getClass().getClassLoader().getResourceAsStream("db.properties")) {
-            if (input == null) {
-                System.out.println("Nie znaleziono db.properties - upewnij się, że plik jest w resources.");
-                return;
+        if (fileProps == null) {
+            System.out.println("Nie znaleziono db.properties - upewnij się, że plik jest w resources.");
+            return;
+        }
+
+        this.gradeCache = new GradeCache(Integer.parseInt(fileProps.getProperty("cache.grades.maxEntries", "10000")));
+        Jmx.register(gradeCache, "type=GradeCache");
+
+        Map<String, Object> jpaProps = new HashMap<>();
+
+        // db.pool=hikari (domyślnie) - własna pula połączeń, db.pool=none - wbudowana pula Hibernate.
+        // Schemat zakładają i aktualizują migracje przed startem Hibernate.
+        if ("none".equalsIgnoreCase(fileProps.getProperty("db.pool", "hikari"))) {
+            SchemaMigrations.migrate(fileProps);
+            jpaProps.put("javax.persistence.jdbc.url", fileProps.getProperty("db.url"));
+            jpaProps.put("javax.persistence.jdbc.user", fileProps.getProperty("db.user"));
+            jpaProps.put("javax.persistence.jdbc.password", fileProps.getProperty("db.password"));
+            if (fileProps.getProperty("db.driver") != null) {
+                jpaProps.put("javax.persistence.jdbc.driver", fileProps.getProperty("db.driver"));
             }
+        } else {
+            this.connectionPool = new ConnectionPool("primary", fileProps, "db.");
+            jpaProps.put("hibernate.connection.datasource", connectionPool.getDataSource());
+            // Pula wydaje połączenia z wyłączonym autocommit - Hibernate nie musi go przełączać
+            jpaProps.put("hibernate.connection.provider_disables_autocommit", "true");
+            SchemaMigrations.migrate(connectionPool.getDataSource());
+        }
+
+        // Inna baza niż PostgreSQL (np. H2) wymaga podania dialektu
+        if (fileProps.getProperty("db.dialect") != null) {
+            jpaProps.put("hibernate.dialect", fileProps.getProperty("db.dialect"));
+        }
+        if (fileProps.getProperty("db.showSql") != null) {
+            jpaProps.put("hibernate.show_sql", fileProps.getProperty("db.showSql"));
+        }
+
+        // Batchowanie insert'ów (dla PostgreSQL warto dodać reWriteBatchedInserts=true do db.url)
+        String batchSize = fileProps.getProperty("db.batchSize", "50");
+        jpaProps.put("hibernate.jdbc.batch_size", batchSize);
+        jpaProps.put("hibernate.order_inserts", "true");
+        // Krok sekwencji ustawiają migracje V1 i 1.1; gdyby baza miała inny, Hibernate użyje kroku z bazy zamiast zgłaszać błąd
+        jpaProps.put("hibernate.id.sequence.increment_size_mismatch_strategy", "FIX");
+
+        this.secondLevelCache = SecondLevelCache.configure(fileProps, jpaProps);
+
+        this.emf = Persistence.createEntityManagerFactory("StudentPU", jpaProps);
+        if (secondLevelCache != null) secondLevelCache.bind(emf);
+        try {
+            this.readReplica = ReadReplica.configure(fileProps);
+        } catch (RuntimeException e) {
+            // Serwer działa dalej na samej bazie głównej
+            System.out.println("Nie udało się połączyć z repliką, odczyty z bazy głównej: " + e.getMessage());
+        }
+        this.changeTracker = new ChangeTracker(emf, Integer.parseInt(fileProps.getProperty("sync.maxEvents", "5000")),
+                Long.parseLong(fileProps.getProperty("sync.tombstonePruneIntervalMs", "3600000")));
+        changeListeners.add(gradeCache);
+        changeListeners.add(directory);
+        changeListeners.add(searchIndex);
+        this.statistics = new GradeStatistics(emf);
+        changeListeners.add(statistics);
+        Jmx.register(statistics, "type=GradeStatistics");
+        this.notifier = new ChangeNotifier(Integer.parseInt(fileProps.getProperty("notify.threads", "4")),
+                Integer.parseInt(fileProps.getProperty("notify.queueSize", "1000")), changeTracker::safeVersion);
+        changeListeners.add(notifier);
+        warmUp();
+
+        this.bulkImporter = new BulkImporter(emf, directory, changeListeners, changeTracker,
+                Integer.parseInt(fileProps.getProperty("import.chunkSize", "500")), Integer.parseInt(batchSize));
+        if (Boolean.parseBoolean(fileProps.getProperty("grades.groupCommit.enabled", "false"))) {
+            this.gradeWriter = new GradeWritePipeline(emf, directory, changeListeners, changeTracker,
+                    Integer.parseInt(fileProps.getProperty("grades.groupCommit.maxBatch", "64")),
+                    Long.parseLong(fileProps.getProperty("grades.groupCommit.maxDelayMs", "2")),
+                    Integer.parseInt(fileProps.getProperty("grades.groupCommit.queueSize", "10000")),
+                    Long.parseLong(fileProps.getProperty("grades.groupCommit.timeoutMs", "30000")));
+        }
+        this.admission = AdmissionControl.configure(fileProps);
+        this.exports = GradebookExports.configure(fileProps);
+    }
+
+    private static Properties loadProperties() {
+        Properties fileProps = new Properties();
+        try (InputStream input = ServerImpl.class.getClassLoader().getResourceAsStream("db.properties")) {
+            if (input == null) return null;
             fileProps.load(input);
         } catch (Exception e) {
             e.printStackTrace();
         }
+        return fileProps;
+    }
 
-        Map<String, String> jpaProps = new HashMap<>();
+    // Uruchamia transport NIO (NioProtocol) na podanym porcie (0 - dowolny wolny); zwraca port nasłuchu
+    public synchronized int startNioServer(int port, int workers, int maxInFlight) throws IOException {
+        if (nioServer == null) nioServer = new NioServer(this, port, workers, maxInFlight);
+        return nioServer.getPort();
+    }
 
+    // Zwalnia zasoby serwera (benchmarki i testy uruchamiają kilka instancji w jednej JVM)
+    public void shutdown() {
+        try {
+            UnicastRemoteObject.unexportObject(this, true);
+        } catch (Exception ignored) {
+            // obiekt nie był wyeksportowany
+        }
+        if (nioServer != null) nioServer.shutdown();
+        if (exports != null) exports.shutdown();
+        for (GradebookImport sink : List.copyOf(openImports)) closeQuietly(sink::close);
+        if (gradeWriter != null) gradeWriter.shutdown();
+        if (notifier != null) notifier.shutdown();
+        if (changeTracker != null) changeTracker.shutdown();
+        if (readReplica != null) readReplica.close();
+        if (emf != null) emf.close();
+        if (secondLevelCache != null) secondLevelCache.close();
+        if (connectionPool != null) connectionPool.close();
+    }
 
-        jpaProps.put("javax.persistence.jdbc.url", fileProps.getProperty("db.url"));
-        jpaProps.put("javax.persistence.jdbc.user", fileProps.getProperty("db.user"));
-        jpaProps.put("javax.persistence.jdbc.password", fileProps.getProperty("db.password"));
+    private static void closeQuietly(RemoteAction close) {
+        try {
+            close.run();
+        } catch (Exception ignored) {
+            // zamykamy mimo błędu
+        }
+    }
 
-        this.emf = Persistence.createEntityManagerFactory("StudentPU", jpaProps);
+    // Każda metoda StudentService przechodzi przez timed() - czas, liczba wywołań i błędów per metoda.
+    // Czas obejmuje oczekiwanie w kolejce AdmissionControl, a odrzucenie jest liczone jako błąd metody.
+    private <T> T timed(String method, RemoteCall<T> call) throws RemoteException {
+        return timed(method, readLimit(), call);
     }
 
-    @Override
-    public List<StudentDTO> getAllStudents() throws RemoteException {
-        EntityManager em = emf.createEntityManager();
+    private <T> T timed(String method, AdmissionControl.Limiter limiter, RemoteCall<T> call) throws RemoteException {
+        long start = System.nanoTime();
+        boolean failed = true;
         try {
-
-            List<Student> students = em.createQuery("SELECT s FROM Student s", Student.class)
-                    .getResultList();
-            
-            return students.stream()
-                    .map(s -> new StudentDTO(s.getId(), s.getFirstName(), s.getLastName(), s.getIndexNumber()))
-                    .collect(Collectors.toList());
+            AdmissionControl.Permit permit = AdmissionControl.enter(limiter);
+            try {
+                T result = call.call();
+                failed = false;
+                return result;
+            } finally {
+                permit.release();
+            }
         } finally {
-            em.close();
+            metrics.record(method, System.nanoTime() - start, failed);
         }
     }
 
-    @Override
-    public List<GradeDTO> getGradesForStudent(Long studentId) throws RemoteException {
-        EntityManager em = emf.createEntityManager();
+    private void timed(String method, RemoteAction action) throws RemoteException {
+        timed(method, readLimit(), action);
+    }
+
+    private void timed(String method, AdmissionControl.Limiter limiter, RemoteAction action) throws RemoteException {
+        timed(method, limiter, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    // CallGate dla kursorów eksportu i importu dziennika
+    private <T> T gated(String method, boolean write, CallGate.Call<T> call) throws RemoteException {
+        return write ? timedWrite(method, call::call) : timed(method, call::call);
+    }
+
+    // Metoda zapisująca - po udanym zapisie klient przez okno read-your-writes czyta z bazy głównej
+    private <T> T timedWrite(String method, RemoteCall<T> call) throws RemoteException {
+        T result = timed(method, writeLimit(), call);
+        written();
+        return result;
+    }
+
+    private void timedWrite(String method, RemoteAction action) throws RemoteException {
+        timedWrite(method, writeLimit(), action);
+    }
+
+    private void timedWrite(String method, AdmissionControl.Limiter limiter, RemoteAction action) throws RemoteException {
+        timed(method, limiter, action);
+        written();
+    }
+
+    private void written() {
+        if (readReplica != null) readReplica.written();
+    }
+
+    private AdmissionControl.Limiter readLimit() {
+        return admission != null ? admission.reads() : null;
+    }
+
+    private AdmissionControl.Limiter writeLimit() {
+        return admission != null ? admission.writes() : null;
+    }
+
+    private AdmissionControl.Limiter gradeWriteLimit() {
+        return admission != null ? admission.gradeWrites() : null;
+    }
+
+    // Odczyt z repliki, jeśli jest i klient nie zapisywał niedawno; błąd repliki - ten sam odczyt z bazy głównej
+    private <T> T read(ReadQuery<T> query) throws RemoteException {
+        if (readReplica != null && readReplica.route()) {
+            try {
+                return read(readReplica.getEntityManagerFactory(), query, true);
+            } catch (RuntimeException e) {
+                readReplica.failed(e);
+            }
+        }
+        return read(emf, query, false);
+    }
+
+    private static <T> T read(EntityManagerFactory factory, ReadQuery<T> query, boolean replica) throws RemoteException {
+        EntityManager em = factory.createEntityManager();
         try {
-            // Pobieramy oceny, gdzie student.id == studentId
-            // Używamy JOIN FETCH g.course, aby od razu mieć nazwę przedmiotu
-            TypedQuery<Grade> query = em.createQuery(
-                "SELECT g FROM Grade g JOIN FETCH g.course WHERE g.student.id = :sid", Grade.class);
-            query.setParameter("sid", studentId);
-            List<Grade> grades = query.getResultList();
-
-            return grades.stream()
-                    .map(g -> new GradeDTO(g.getId(), g.getCourse().getName(), g.getValue()))
-                    .collect(Collectors.toList());
+            return query.run(em, replica);
         } finally {
             em.close();
         }
     }
 
-    @Override
-    public void addStudent(StudentDTO dto) throws RemoteException {
+    private void warmUp() {
         EntityManager em = emf.createEntityManager();
         try {
-            em.getTransaction().begin();
-            Student student = new Student(dto.getFirstName(), dto.getLastName(), dto.getIndexNumber());
-            em.persist(student);
-            em.getTransaction().commit();
-        } catch (Exception e) {
-            if (em.getTransaction().isActive()) em.getTransaction().rollback();
-            throw new RemoteException("Błąd dodawania studenta: " + e.getMessage(), e);
+            directory.warmUp(em);
+            changeTracker.warmUp(em);
+            searchIndex.warmUp(em);
         } finally {
             em.close();
         }
+        statistics.rebuild();
+    }
+
+    @Override
+    public List<StudentDTO> getAllStudents() throws RemoteException {
+        return timed("getAllStudents", () -> read((em, replica) -> {
+            // Projekcja prosto do DTO - encje nie trafiają do kontekstu trwałości (bez kopii do dirty checking).
+            // Kolejność po id - kolumnowy format zapisuje różnice kolejnych id
+            List<StudentDTO> students = readOnly(em.createQuery(
+                    "SELECT new com.studentmanager.shared.StudentDTO(s.id, s.firstName, s.lastName, s.indexNumber) " +
+                    "FROM Student s ORDER BY s.id", StudentDTO.class))
+                    .getResultList();
+
+            // Kolumnowy format - przy tysiącach studentów kilkukrotnie mniej bajtów niż ArrayList
+            return PackedStudentList.of(students);
+        }));
+    }
+
+    @Override
+    public StudentPage getStudentsPage(StudentPageCursor cursor, int limit) throws RemoteException {
+        return timed("getStudentsPage", () -> {
+            StudentPageCursor start = cursor != null ? cursor : StudentPageCursor.first(StudentSortKey.ID);
+            StudentSortKey sortKey = start.getSortKey() != null ? start.getSortKey() : StudentSortKey.ID;
+            int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+            return read((em, replica) -> {
+                String keyPath = sortKeyPath(sortKey);
+                StringBuilder jpql = new StringBuilder(
+                        "SELECT new com.studentmanager.shared.StudentDTO(s.id, s.firstName, s.lastName, s.indexNumber) FROM Student s");
+                if (!start.isFirst()) {
+                    // (klucz, id) > (ostatni klucz, ostatnie id) - działa też dla nieunikalnych nazwisk
+                    jpql.append(sortKey == StudentSortKey.ID
+                            ? " WHERE s.id > :afterId"
+                            : " WHERE " + keyPath + " > :afterKey OR (" + keyPath + " = :afterKey AND s.id > :afterId)");
+                }
+                jpql.append(sortKey == StudentSortKey.ID ? " ORDER BY s.id" : " ORDER BY " + keyPath + ", s.id");
+
+                TypedQuery<StudentDTO> query = readOnly(em.createQuery(jpql.toString(), StudentDTO.class));
+                if (!start.isFirst()) {
+                    query.setParameter("afterId", start.getAfterId());
+                    if (sortKey != StudentSortKey.ID) query.setParameter("afterKey", start.getAfterKey());
+                }
+                // Jeden wiersz więcej, żeby wiedzieć czy istnieje następna strona
+                List<StudentDTO> students = query.setMaxResults(pageSize + 1).getResultList();
+
+                boolean hasMore = students.size() > pageSize;
+                List<StudentDTO> page = hasMore ? students.subList(0, pageSize) : students;
+
+                StudentPageCursor next = null;
+                if (hasMore) {
+                    StudentDTO last = page.get(page.size() - 1);
+                    next = new StudentPageCursor(sortKey, sortKeyValue(sortKey, last), last.getId());
+                }
+                return new StudentPage(PackedStudentList.of(page), next);
+            });
+        });
+    }
+
+    // Zapytanie tylko do odczytu: Hibernate nie robi migawek wyników, a sterownik pobiera wiersze porcjami
+    // (PostgreSQL przy wyłączonym autocommit czyta kursorem zamiast całego wyniku naraz)
+    private static <T> TypedQuery<T> readOnly(TypedQuery<T> query) {
+        return query.setHint(QueryHints.HINT_READONLY, true)
+                .setHint(QueryHints.HINT_FETCH_SIZE, READ_FETCH_SIZE);
+    }
+
+    private static String sortKeyPath(StudentSortKey sortKey) {
+        switch (sortKey) {
+            case LAST_NAME: return "s.lastName";
+            case INDEX_NUMBER: return "s.indexNumber";
+            default: return "s.id";
+        }
+    }
+
+    private static String sortKeyValue(StudentSortKey sortKey, StudentDTO student) {
+        switch (sortKey) {
+            case LAST_NAME: return student.getLastName();
+            case INDEX_NUMBER: return student.getIndexNumber();
+            default: return null;
+        }
+    }
+
+    @Override
+    public List<StudentDTO> searchStudents(String query, int limit) throws RemoteException {
+        return timed("searchStudents", () -> {
+            if (query == null || query.isBlank()) return PackedStudentList.of(List.of());
+            // Wyszukiwanie z indeksu w pamięci, bez zapytania do bazy
+            return PackedStudentList.of(searchIndex.search(query, Math.max(1, Math.min(limit, MAX_PAGE_SIZE))));
+        });
+    }
+
+    @Override
+    public List<GradeDTO> getGradesForStudent(Long studentId) throws RemoteException {
+        return timed("getGradesForStudent", () -> {
+            List<GradeDTO> cached = gradeCache.get(studentId);
+            if (cached != null) return cached;
+
+            long stamp = gradeCache.stamp();
+            return read((em, replica) -> {
+                // Oceny studenta z nazwą przedmiotu (złączenie po g.course) jako DTO, bez wczytywania encji
+                List<GradeDTO> grades = readOnly(em.createQuery(
+                        "SELECT new com.studentmanager.shared.GradeDTO(g.id, g.course.name, g.value) " +
+                        "FROM Grade g WHERE g.student.id = :sid", GradeDTO.class))
+                        .setParameter("sid", studentId)
+                        .getResultList();
+
+                List<GradeDTO> result = PackedGradeList.of(grades);
+                // Replika może nie mieć jeszcze zmiany, która właśnie unieważniła wpis - bez zapisu do cache
+                if (!replica) gradeCache.put(studentId, result, stamp);
+                return result;
+            });
+        });
+    }
+
+    @Override
+    public Map<Long, List<GradeDTO>> getGradesForStudents(List<Long> studentIds) throws RemoteException {
+        return timed("getGradesForStudents", () -> {
+            Map<Long, List<GradeDTO>> result = new LinkedHashMap<>();
+            List<Long> missing = new ArrayList<>();
+            for (Long studentId : studentIds) {
+                if (studentId == null || result.containsKey(studentId)) continue;
+                List<GradeDTO> cached = gradeCache.get(studentId);
+                result.put(studentId, cached);
+                if (cached == null) missing.add(studentId);
+            }
+            if (missing.isEmpty()) return result;
+
+            long stamp = gradeCache.stamp();
+            return read((em, replica) -> {
+                // Brakujące oceny jednym zapytaniem IN zamiast zapytania na studenta.
+                // Same kolumny zamiast encji - Grade wczytany jako encja dociągałby każdego studenta osobno.
+                Map<Long, List<GradeDTO>> loaded = new HashMap<>();
+                for (int from = 0; from < missing.size(); from += MAX_IN_PARAMS) {
+                    List<Object[]> rows = readOnly(em.createQuery(
+                            "SELECT g.student.id, g.id, g.course.name, g.value FROM Grade g WHERE g.student.id IN :sids", Object[].class))
+                            .setParameter("sids", missing.subList(from, Math.min(missing.size(), from + MAX_IN_PARAMS)))
+                            .getResultList();
+                    for (Object[] r : rows) {
+                        loaded.computeIfAbsent((Long) r[0], id -> new ArrayList<>())
+                                .add(new GradeDTO((Long) r[1], (String) r[2], (Double) r[3]));
+                    }
+                }
+                for (Long studentId : missing) {
+                    List<GradeDTO> grades = PackedGradeList.of(loaded.getOrDefault(studentId, List.of()));
+                    if (!replica) gradeCache.put(studentId, grades, stamp);
+                    result.put(studentId, grades);
+                }
+                return result;
+            });
+        });
+    }
+
+    @Override
+    public void addStudent(StudentDTO dto) throws RemoteException {
+        timedWrite("addStudent", () -> {
+            // Duplikat numeru indeksu odrzucamy bez odpytywania bazy
+            if (directory.containsIndex(dto.getIndexNumber())) {
+                throw new RemoteException("Błąd dodawania studenta: numer indeksu " + dto.getIndexNumber() + " już istnieje");
+            }
+            long version = changeTracker.begin();
+            try {
+                Student student = new Student(dto.getFirstName(), dto.getLastName(), dto.getIndexNumber());
+                EntityManager em = emf.createEntityManager();
+                try {
+                    em.getTransaction().begin();
+                    student.setChangeVersion(version);
+                    em.persist(student);
+                    em.getTransaction().commit();
+                } catch (Exception e) {
+                    if (em.getTransaction().isActive()) em.getTransaction().rollback();
+                    throw new RemoteException("Błąd dodawania studenta: " + e.getMessage(), e);
+                } finally {
+                    em.close();
+                }
+                // Po zatwierdzeniu, ale przed end(version) - zdarzenie nie może wyprzedzić bezpiecznej wersji
+                changeListeners.studentAdded(new StudentDTO(student.getId(), student.getFirstName(), student.getLastName(), student.getIndexNumber()));
+            } finally {
+                changeTracker.end(version);
+            }
+        });
     }
 
     @Override
     public void removeStudent(Long studentId) throws RemoteException {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            Student s = em.find(Student.class, studentId);
-            if (s != null) {
-                em.remove(s);
+        timedWrite("removeStudent", () -> {
+            long version = changeTracker.begin();
+            try {
+                int removed;
+                EntityManager em = emf.createEntityManager();
+                try {
+                    em.getTransaction().begin();
+                    // Oceny usuwa baza (ON DELETE CASCADE), więc nie trzeba wczytywać encji
+                    removed = em.createQuery("DELETE FROM Student s WHERE s.id = :id")
+                            .setParameter("id", studentId)
+                            .executeUpdate();
+                    if (removed > 0) em.persist(new Tombstone(version, studentId, null));
+                    em.getTransaction().commit();
+                } finally {
+                    if (em.getTransaction().isActive()) em.getTransaction().rollback();
+                    em.close();
+                }
+                if (removed > 0) changeListeners.studentRemoved(studentId);
+            } finally {
+                changeTracker.end(version);
             }
-            em.getTransaction().commit();
-        } finally {
-            em.close();
-        }
+        });
     }
 
     @Override
     public void addCourse(String courseName) throws RemoteException {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            List<Course> existing = em.createQuery("SELECT c FROM Course c WHERE c.name = :name", Course.class)
-                    .setParameter("name", courseName)
-                    .getResultList();
-            
-            if (existing.isEmpty()) {
-                em.persist(new Course(courseName));
+        timedWrite("addCourse", () -> {
+            if (directory.courseId(courseName) != null) return;
+
+            long version = changeTracker.begin();
+            try {
+                Course course;
+                EntityManager em = emf.createEntityManager();
+                try {
+                    em.getTransaction().begin();
+                    List<Course> existing = em.createQuery("SELECT c FROM Course c WHERE c.name = :name", Course.class)
+                            .setHint(QueryHints.HINT_CACHEABLE, true)
+                            .setParameter("name", courseName)
+                            .getResultList();
+                
+                    course = existing.isEmpty() ? new Course(courseName) : existing.get(0);
+                    if (existing.isEmpty()) {
+                        course.setChangeVersion(version);
+                        em.persist(course);
+                    }
+                    em.getTransaction().commit();
+                } finally {
+                    if (em.getTransaction().isActive()) em.getTransaction().rollback();
+                    em.close();
+                }
+                changeListeners.courseAdded(course.getId(), course.getName());
+            } finally {
+                changeTracker.end(version);
             }
-            em.getTransaction().commit();
-        } finally {
-            em.close();
-        }
+        });
     }
 
     @Override
     public void addGrade(Long studentId, String courseName, int gradeValue) throws RemoteException {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
+        timedWrite("addGrade", gradeWriteLimit(), () -> {
+            if (gradeWriter != null) {
+                try {
+                    gradeWriter.addGrade(studentId, courseName, gradeValue);
+                } catch (RemoteException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new RemoteException("Błąd dodawania oceny (możliwy duplikat): " + e.getMessage(), e);
+                }
+                return;
+            }
+            long version = changeTracker.begin();
+            try {
+                Course course;
+                boolean courseFromDb;
+                Grade grade;
+                EntityManager em = emf.createEntityManager();
+                try {
+                    em.getTransaction().begin();
             
-            Student s = em.find(Student.class, studentId);
-            if (s == null) throw new IllegalArgumentException("Student nie istnieje");
+                    // Znany student/przedmiot - referencja po id bez zapytania do bazy
+                    Student s;
+                    if (directory.containsStudent(studentId)) {
+                        s = em.getReference(Student.class, studentId);
+                    } else {
+                        s = em.find(Student.class, studentId);
+                        if (s == null) throw new IllegalArgumentException("Student nie istnieje");
+                    }
 
-            Course course;
-            try {
-                course = em.createQuery("SELECT c FROM Course c WHERE c.name = :name", Course.class)
-                        .setParameter("name", courseName)
-                        .getSingleResult();
-            } catch (NoResultException e) {
-                course = new Course(courseName);
-                em.persist(course);
-            }
+                    courseFromDb = false;
+                    Long courseId = directory.courseId(courseName);
+                    if (courseId != null) {
+                        course = em.getReference(Course.class, courseId);
+                    } else {
+                        try {
+                            course = em.createQuery("SELECT c FROM Course c WHERE c.name = :name", Course.class)
+                                    .setHint(QueryHints.HINT_CACHEABLE, true)
+                                    .setParameter("name", courseName)
+                                    .getSingleResult();
+                        } catch (NoResultException e) {
+                            course = new Course(courseName);
+                            course.setChangeVersion(version);
+                            em.persist(course);
+                        }
+                        courseFromDb = true;
+                    }
 
-            Grade grade = new Grade((double) gradeValue, s, course);
-            em.persist(grade);
+                    grade = new Grade((double) gradeValue, s, course);
+                    grade.setChangeVersion(version);
+                    em.persist(grade);
             
-            em.getTransaction().commit();
-        } catch (Exception e) {
-            if (em.getTransaction().isActive()) em.getTransaction().rollback();
-            throw new RemoteException("Błąd dodawania oceny (możliwy duplikat): " + e.getMessage(), e);
-        } finally {
-            em.close();
-        }
+                    em.getTransaction().commit();
+                } catch (Exception e) {
+                    if (em.getTransaction().isActive()) em.getTransaction().rollback();
+                    throw new RemoteException("Błąd dodawania oceny (możliwy duplikat): " + e.getMessage(), e);
+                } finally {
+                    em.close();
+                }
+                if (courseFromDb) changeListeners.courseAdded(course.getId(), courseName);
+                changeListeners.gradeAdded(studentId, new GradeDTO(grade.getId(), courseName, grade.getValue()));
+            } finally {
+                changeTracker.end(version);
+            }
+        });
     }
 
     @Override
     public void removeGrade(Long studentId, String courseName) throws RemoteException {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            Query q = em.createQuery("DELETE FROM Grade g WHERE g.student.id = :sid AND g.course.name = :cname");
-            q.setParameter("sid", studentId);
-            q.setParameter("cname", courseName);
-            q.executeUpdate();
-            em.getTransaction().commit();
-        } finally {
-            em.close();
+        timedWrite("removeGrade", gradeWriteLimit(), () -> {
+            if (gradeWriter != null) {
+                try {
+                    gradeWriter.removeGrade(studentId, courseName);
+                } catch (RemoteException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new RemoteException("Błąd usuwania oceny: " + e.getMessage(), e);
+                }
+                return;
+            }
+            Long courseId = directory.courseId(courseName);
+            long version = changeTracker.begin();
+            try {
+                int removed;
+                EntityManager em = emf.createEntityManager();
+                try {
+                    em.getTransaction().begin();
+                    Query q;
+                    if (courseId != null) {
+                        q = em.createQuery("DELETE FROM Grade g WHERE g.student.id = :sid AND g.course.id = :cid");
+                        q.setParameter("cid", courseId);
+                    } else {
+                        q = em.createQuery("DELETE FROM Grade g WHERE g.student.id = :sid " +
+                                    "AND g.course.id IN (SELECT c.id FROM Course c WHERE c.name = :cname)");
+                        q.setParameter("cname", courseName);
+                    }
+                    q.setParameter("sid", studentId);
+                    removed = q.executeUpdate();
+                    if (removed > 0) em.persist(new Tombstone(version, studentId, courseName));
+                    em.getTransaction().commit();
+                } finally {
+                    if (em.getTransaction().isActive()) em.getTransaction().rollback();
+                    em.close();
+                }
+                if (removed > 0) changeListeners.gradeRemoved(studentId, courseName);
+            } finally {
+                changeTracker.end(version);
+            }
+        });
+    }
+
+    @Override
+    public ImportReport addStudents(List<StudentDTO> students) throws RemoteException {
+        return timedWrite("addStudents", () -> {
+            try {
+                return bulkImporter.importStudents(students);
+            } catch (Exception e) {
+                throw new RemoteException("Błąd importu studentów: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    @Override
+    public ImportReport addGrades(List<GradeEntryDTO> grades) throws RemoteException {
+        return timedWrite("addGrades", () -> {
+            try {
+                return bulkImporter.importGrades(grades);
+            } catch (Exception e) {
+                throw new RemoteException("Błąd importu ocen: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    @Override
+    public GradebookExport exportGradebook(int chunkSize) throws RemoteException {
+        return timed("exportGradebook", () -> {
+            try {
+                int chunk = Math.max(1, Math.min(chunkSize, MAX_STREAM_CHUNK));
+                if (readReplica != null && readReplica.route()) {
+                    try {
+                        return new GradebookExportCursor(readReplica.getEntityManagerFactory(), chunk, exports, this::gated);
+                    } catch (RuntimeException e) {
+                        readReplica.failed(e);
+                    }
+                }
+                return new GradebookExportCursor(emf, chunk, exports, this::gated);
+            } catch (RemoteException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RemoteException("Błąd eksportu dziennika: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    @Override
+    public GradebookImport importGradebook() throws RemoteException {
+        return timed("importGradebook", () -> new GradebookImportSink(bulkImporter, openImports, this::gated));
+    }
+
+    @Override
+    public ChangeLog getStudentsChangedSince(long version) throws RemoteException {
+        return timed("getStudentsChangedSince", () -> {
+            try {
+                return changeTracker.changesSince(version);
+            } catch (Exception e) {
+                throw new RemoteException("Błąd pobierania zmian: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    @Override
+    public void subscribe(StudentChangeListener listener) throws RemoteException {
+        // Subskrypcje bez limitu - tanie, a odrzucone unsubscribe zostawiłoby martwego subskrybenta
+        timed("subscribe", null, () -> notifier.subscribe(listener));
+    }
+
+    @Override
+    public void unsubscribe(StudentChangeListener listener) throws RemoteException {
+        timed("unsubscribe", null, () -> notifier.unsubscribe(listener));
+    }
+
+    @Override
+    public ServerStats getServerStats() throws RemoteException {
+        Map<String, Number> gauges = new TreeMap<>();
+        gauges.put("gradeCache.hits", gradeCache.getHits());
+        gauges.put("gradeCache.misses", gradeCache.getMisses());
+        gauges.put("gradeCache.evictions", gradeCache.getEvictions());
+        gauges.put("gradeCache.size", gradeCache.getSize());
+        if (connectionPool != null) {
+            gauges.put("pool.active", connectionPool.getActiveConnections());
+            gauges.put("pool.idle", connectionPool.getIdleConnections());
+            gauges.put("pool.waiting", connectionPool.getThreadsAwaitingConnection());
+            gauges.put("pool.meanAcquisitionMicros", connectionPool.getMeanAcquisitionMicros());
+            gauges.put("pool.maxAcquisitionMicros", connectionPool.getMaxAcquisitionMicros());
+        }
+        gauges.put("notify.subscribers", notifier.subscriberCount());
+        gauges.put("notify.deliveredBatches", notifier.deliveredBatches());
+        gauges.put("notify.overflows", notifier.overflowCount());
+        gauges.put("sync.version", changeTracker.safeVersion());
+        gauges.put("sync.tombstonesPruned", changeTracker.prunedTombstones());
+        gauges.put("search.students", searchIndex.size());
+        exports.addGauges(gauges);
+        gauges.put("stream.openImports", openImports.size());
+        if (secondLevelCache != null) secondLevelCache.addGauges(gauges);
+        if (gradeWriter != null) {
+            gauges.put("groupCommit.queued", gradeWriter.queued());
+            gauges.put("groupCommit.groups", gradeWriter.groupCount());
+            gauges.put("groupCommit.mutations", gradeWriter.mutationCount());
+            gauges.put("groupCommit.fallbacks", gradeWriter.fallbackCount());
         }
+        if (nioServer != null) nioServer.addGauges(gauges);
+        if (readReplica != null) readReplica.addGauges(gauges);
+        if (admission != null) admission.addGauges(gauges);
+        metrics.addJvmGauges(gauges);
+        return new ServerStats(metrics.uptimeMillis(), metrics.snapshot(), gauges);
+    }
+
+    @Override
+    public StudentStatsDTO getStudentStats(Long studentId) throws RemoteException {
+        return timed("getStudentStats", () -> statistics.studentStats(studentId));
+    }
+
+    @Override
+    public CourseStatsDTO getCourseStats(String courseName) throws RemoteException {
+        return timed("getCourseStats", () -> statistics.courseStats(courseName));
+    }
+
+    @Override
+    public List<CourseStatsDTO> getAllCourseStats() throws RemoteException {
+        return timed("getAllCourseStats", () -> statistics.allCourseStats());
+    }
+
+    @Override
+    public CourseRankingPage getCourseRanking(CourseRankingCursor cursor, int limit) throws RemoteException {
+        return timed("getCourseRanking", () -> {
+            if (cursor == null) throw new RemoteException("Brak przedmiotu rankingu");
+            // Dane studentów z indeksu wyszukiwania - ranking nie czyta bazy
+            return statistics.ranking(cursor, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)), searchIndex::student);
+        });
+    }
+
+    @Override
+    public List<RankingEntryDTO> getStudentsBelow(String courseName, double threshold, int limit) throws RemoteException {
+        return timed("getStudentsBelow", () ->
+                statistics.below(courseName, threshold, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)), searchIndex::student));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,57 @@
+package com.studentmanager.server;
+
+import com.studentmanager.shared.MethodStats;
+
+import java.lang.management.*;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Metryki wszystkich metod StudentService, rejestrowane w JMX przy pierwszym wywołaniu metody
+class ServerMetrics {
+    private final Map<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+    private final long startMillis = System.currentTimeMillis();
+
+    void record(String method, long nanos, boolean failed) {
+        methods.computeIfAbsent(method, name -> {
+            MethodMetrics metrics = new MethodMetrics(name);
+            Jmx.register(metrics, "type=Method,name=" + name);
+            return metrics;
+        }).record(nanos, failed);
+    }
+
+    Map<String, MethodStats> snapshot() {
+        Map<String, MethodStats> result = new TreeMap<>();
+        methods.forEach((name, metrics) -> result.put(name, metrics.snapshot()));
+        return result;
+    }
+
+    long uptimeMillis() {
+        return System.currentTimeMillis() - startMillis;
+    }
+
+    // Pamięć, wątki i GC procesu serwera - do obserwacji w długich testach obciążeniowych.
+    // jvm.heap.afterGc (zajętość puli po ostatnim GC) rośnie przy wycieku, heap.used waha się z każdym GC.
+    void addJvmGauges(Map<String, Number> gauges) {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        gauges.put("jvm.heap.used", heap.getUsed());
+        gauges.put("jvm.heap.max", heap.getMax());
+        long afterGc = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage usage = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+            if (usage != null) afterGc += usage.getUsed();
+        }
+        gauges.put("jvm.heap.afterGc", afterGc);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        gauges.put("jvm.threads", threads.getThreadCount());
+        gauges.put("jvm.threads.peak", threads.getPeakThreadCount());
+        long collections = 0;
+        long collectionMillis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            collections += Math.max(0, gc.getCollectionCount());
+            collectionMillis += Math.max(0, gc.getCollectionTime());
+        }
+        gauges.put("jvm.gc.count", collections);
+        gauges.put("jvm.gc.millis", collectionMillis);
+    }
+}
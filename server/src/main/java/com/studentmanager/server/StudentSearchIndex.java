@@ -0,0 +1,334 @@
+package com.studentmanager.server;
+
+import com.studentmanager.shared.StudentDTO;
+
+import javax.persistence.EntityManager;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Indeks wyszukiwania studentów po imieniu, nazwisku i numerze indeksu, trzymany w pamięci serwera.
+// Teksty są normalizowane (małe litery, bez polskich znaków), więc "lodz" znajduje "Łódź".
+// Indeksowane są różne wartości pól (imion i nazwisk jest dużo mniej niż studentów), każda z listą swoich studentów:
+// pełna wartość i początki jej słów w TreeMap (zapytanie o prefiks to wycinek mapy), a trigramy do szukania podciągów.
+// Wyniki: najpierw pełna zgodność, potem początek słowa, potem podciąg - dzięki temu przy jednym słowie
+// przeglądamy wartości w kolejności wyników i kończymy po zebraniu limitu.
+class StudentSearchIndex implements DataChangeListener {
+    private static final int GRAM = 3;
+
+    private static class Doc {
+        final StudentDTO student;
+        final String[] fields;
+        // Wartości pól w indeksie (null dla pustego pola)
+        final Value[] values = new Value[3];
+
+        Doc(StudentDTO student) {
+            this.student = student;
+            this.fields = new String[]{
+                    normalize(student.getLastName()), normalize(student.getFirstName()), normalize(student.getIndexNumber())};
+        }
+    }
+
+    // Znormalizowana wartość pola wspólna dla wszystkich studentów, którzy ją mają (np. "nowak")
+    private static class Value {
+        final String text;
+        // Sloty studentów rosnąco; sloty usuniętych studentów są pomijane przy odczycie
+        int[] slots = new int[2];
+        int size;
+
+        Value(String text) {
+            this.text = text;
+        }
+
+        void add(int slot) {
+            if (size > 0 && slots[size - 1] == slot) return;
+            if (size == slots.length) slots = Arrays.copyOf(slots, size * 2);
+            slots[size++] = slot;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Doc> docs = new ArrayList<>();
+    private final Map<Long, Integer> slotsById = new HashMap<>();
+    private final Map<String, Value> values = new HashMap<>();
+    // Wartość oraz jej fragmenty od początku każdego słowa (np. "kowal" z "nowakowska-kowal")
+    private final TreeMap<String, List<Value>> prefixes = new TreeMap<>();
+    private final Map<String, List<Value>> trigrams = new HashMap<>();
+    private int removed;
+
+    void warmUp(EntityManager em) {
+        List<Object[]> rows = em.createQuery(
+                "SELECT s.id, s.firstName, s.lastName, s.indexNumber FROM Student s ORDER BY s.id", Object[].class)
+                .getResultList();
+        lock.writeLock().lock();
+        try {
+            clear();
+            for (Object[] r : rows) add(new StudentDTO((Long) r[0], (String) r[1], (String) r[2], (String) r[3]));
+            System.out.println("Indeks wyszukiwania: " + slotsById.size() + " studentów, " + values.size() + " wartości");
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return slotsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // null, gdy studenta nie ma w indeksie
+    StudentDTO student(Long studentId) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slotsById.get(studentId);
+            return slot == null ? null : docs.get(slot).student;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Małe litery bez znaków diakrytycznych; "ł" nie rozkłada się w Unicode na "l" + znak, więc zamieniamy je osobno
+    static String normalize(String text) {
+        if (text == null) return "";
+        String lower = text.toLowerCase(Locale.ROOT).replace('ł', 'l');
+        String decomposed = Normalizer.normalize(lower, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) sb.append(c);
+        }
+        return sb.toString().trim();
+    }
+
+    // Studenci pasujący do wszystkich słów zapytania (każde słowo do któregoś z pól)
+    List<StudentDTO> search(String query, int limit) {
+        List<String> words = new ArrayList<>();
+        for (String word : normalize(query).split("\\s+")) if (!word.isEmpty()) words.add(word);
+        if (words.isEmpty() || limit <= 0) return List.of();
+
+        lock.readLock().lock();
+        try {
+            return words.size() == 1 ? searchWord(words.get(0), limit) : searchWords(words, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Jedno słowo: wartości przeglądane w kolejności wyników, koniec po zebraniu limitu
+    private List<StudentDTO> searchWord(String word, int limit) {
+        List<StudentDTO> result = new ArrayList<>(limit);
+        BitSet seen = new BitSet(docs.size());
+
+        Value exact = values.get(word);
+        if (exact != null && emit(exact, result, seen, limit)) return result;
+
+        for (List<Value> prefixed : prefixes.subMap(word, true, word + Character.MAX_VALUE, false).values()) {
+            for (Value value : prefixed) {
+                if (emit(value, result, seen, limit)) return result;
+            }
+        }
+
+        if (word.length() >= GRAM) {
+            // Kopiec zamiast sortowania - zwykle wystarczy kilka pierwszych wartości
+            PriorityQueue<Value> containing = new PriorityQueue<>(Comparator.comparing(v -> v.text));
+            containing.addAll(substringValues(word));
+            while (!containing.isEmpty()) {
+                if (emit(containing.poll(), result, seen, limit)) return result;
+            }
+        }
+        return result;
+    }
+
+    // true, gdy wynik jest pełny
+    private boolean emit(Value value, List<StudentDTO> result, BitSet seen, int limit) {
+        for (int i = 0; i < value.size; i++) {
+            int slot = value.slots[i];
+            Doc doc = docs.get(slot);
+            if (doc != null && !seen.get(slot)) {
+                seen.set(slot);
+                result.add(doc.student);
+                if (result.size() >= limit) return true;
+            }
+        }
+        return false;
+    }
+
+    // Kilka słów: kandydaci ze słowa pasującego do najmniejszej liczby studentów, sprawdzani pod kątem pozostałych.
+    // Ocena słowa jest liczona raz dla wartości, a nie dla każdego studenta.
+    private List<StudentDTO> searchWords(List<String> words, int limit) {
+        List<Map<Value, Integer>> wordScores = new ArrayList<>(words.size());
+        Map<Value, Integer> candidates = null;
+        long candidateCount = Long.MAX_VALUE;
+        for (String word : words) {
+            Map<Value, Integer> matching = matchingValues(word);
+            wordScores.add(matching);
+            long count = 0;
+            for (Value value : matching.keySet()) count += value.size;
+            if (count < candidateCount) {
+                candidates = matching;
+                candidateCount = count;
+            }
+        }
+
+        Comparator<ScoredDoc> order = Comparator
+                .comparingInt((ScoredDoc d) -> -d.score)
+                .thenComparing(d -> d.doc.fields[0])
+                .thenComparing(d -> d.doc.fields[1])
+                .thenComparing(d -> d.doc.student.getId());
+        // Najgorszy z dotychczasowych wyników na szczycie kolejki
+        PriorityQueue<ScoredDoc> top = new PriorityQueue<>(limit + 1, order.reversed());
+        BitSet seen = new BitSet(docs.size());
+        for (Value value : candidates.keySet()) {
+            for (int i = 0; i < value.size; i++) {
+                int slot = value.slots[i];
+                Doc doc = docs.get(slot);
+                if (doc == null || seen.get(slot)) continue;
+                seen.set(slot);
+                int score = score(doc, wordScores);
+                if (score == 0) continue;
+                if (top.size() == limit && score < top.peek().score) continue;
+                ScoredDoc scored = new ScoredDoc(doc, score);
+                if (top.size() == limit && order.compare(scored, top.peek()) >= 0) continue;
+                top.add(scored);
+                if (top.size() > limit) top.poll();
+            }
+        }
+
+        List<ScoredDoc> sorted = new ArrayList<>(top);
+        sorted.sort(order);
+        List<StudentDTO> result = new ArrayList<>(sorted.size());
+        for (ScoredDoc scored : sorted) result.add(scored.doc.student);
+        return result;
+    }
+
+    private static class ScoredDoc {
+        final Doc doc;
+        final int score;
+
+        ScoredDoc(Doc doc, int score) {
+            this.doc = doc;
+            this.score = score;
+        }
+    }
+
+    // Wartości pasujące do słowa z oceną: 3 - pełna zgodność, 2 - początek słowa, 1 - podciąg
+    private Map<Value, Integer> matchingValues(String word) {
+        Map<Value, Integer> matching = new IdentityHashMap<>();
+        if (word.length() >= GRAM) {
+            for (Value value : substringValues(word)) matching.put(value, 1);
+        }
+        for (List<Value> prefixed : prefixes.subMap(word, true, word + Character.MAX_VALUE, false).values()) {
+            for (Value value : prefixed) matching.put(value, 2);
+        }
+        Value exact = values.get(word);
+        if (exact != null) matching.put(exact, 3);
+        return matching;
+    }
+
+    // Wartości zawierające słowo: kandydaci z najkrótszej listy trigramu, sprawdzani przez contains()
+    private List<Value> substringValues(String word) {
+        List<Value> smallest = null;
+        for (int i = 0; i + GRAM <= word.length(); i++) {
+            List<Value> list = trigrams.get(word.substring(i, i + GRAM));
+            if (list == null) return new ArrayList<>();
+            if (smallest == null || list.size() < smallest.size()) smallest = list;
+        }
+        List<Value> result = new ArrayList<>();
+        for (Value value : smallest) {
+            if (value.text.contains(word)) result.add(value);
+        }
+        return result;
+    }
+
+    // Suma najlepszych ocen słów po polach studenta; 0 - któreś słowo nie pasuje do żadnego pola
+    private static int score(Doc doc, List<Map<Value, Integer>> wordScores) {
+        int total = 0;
+        for (Map<Value, Integer> scores : wordScores) {
+            int best = 0;
+            for (Value value : doc.values) {
+                if (value == null) continue;
+                Integer score = scores.get(value);
+                if (score != null && score > best) best = score;
+            }
+            if (best == 0) return 0;
+            total += best;
+        }
+        return total;
+    }
+
+    // Fragmenty wartości od początku każdego słowa: "nowakowska-kowal" -> "nowakowska-kowal", "kowal"
+    private static List<String> wordStarts(String text) {
+        List<String> parts = new ArrayList<>(2);
+        parts.add(text);
+        for (int i = 0; i < text.length() - 1; i++) {
+            char c = text.charAt(i);
+            if (c == ' ' || c == '-') parts.add(text.substring(i + 1));
+        }
+        return parts;
+    }
+
+    private void add(StudentDTO student) {
+        if (slotsById.containsKey(student.getId())) return;
+        Doc doc = new Doc(student);
+        int slot = docs.size();
+        docs.add(doc);
+        slotsById.put(student.getId(), slot);
+        for (int f = 0; f < doc.fields.length; f++) {
+            String field = doc.fields[f];
+            if (field.isEmpty()) continue;
+            Value value = values.get(field);
+            if (value == null) {
+                value = new Value(field);
+                values.put(field, value);
+                for (String part : wordStarts(field)) prefixes.computeIfAbsent(part, k -> new ArrayList<>(1)).add(value);
+                Set<String> grams = new HashSet<>();
+                for (int i = 0; i + GRAM <= field.length(); i++) grams.add(field.substring(i, i + GRAM));
+                for (String gram : grams) trigrams.computeIfAbsent(gram, k -> new ArrayList<>()).add(value);
+            }
+            value.add(slot);
+            doc.values[f] = value;
+        }
+    }
+
+    private void clear() {
+        docs.clear();
+        slotsById.clear();
+        values.clear();
+        prefixes.clear();
+        trigrams.clear();
+        removed = 0;
+    }
+
+    @Override
+    public void studentAdded(StudentDTO student) {
+        lock.writeLock().lock();
+        try {
+            add(student);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void studentRemoved(Long studentId) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotsById.remove(studentId);
+            if (slot == null) return;
+            docs.set(slot, null);
+            // Dużo pustych slotów wydłuża listy - budujemy indeks od nowa z pozostałych studentów
+            if (++removed > slotsById.size()) {
+                List<StudentDTO> alive = new ArrayList<>(slotsById.size());
+                for (Doc doc : docs) if (doc != null) alive.add(doc.student);
+                clear();
+                alive.forEach(this::add);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+-- Schemat bazowy. Wykonywany także na bazach założonych wcześniej przez hbm2ddl=update (oznaczanych jako
+-- wersja 0), dlatego każda instrukcja pomija to, co już istnieje, i tylko uzupełnia brakujące elementy.
+-- Sekwencje istniejących baz ustawia migracja 1.1 (IdSequenceMigration) według największego id w tabelach.
+
+-- Krok sekwencji musi być równy allocationSize w @SequenceGenerator encji
+CREATE SEQUENCE IF NOT EXISTS students_id_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS courses_id_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS grades_id_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS tombstones_id_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS students (
+    id BIGINT NOT NULL,
+    first_name VARCHAR(255) NOT NULL,
+    last_name VARCHAR(255) NOT NULL,
+    index_number VARCHAR(255) NOT NULL,
+    change_version BIGINT,
+    CONSTRAINT pk_students PRIMARY KEY (id),
+    CONSTRAINT uk_students_index_number UNIQUE (index_number)
+);
+
+CREATE TABLE IF NOT EXISTS courses (
+    id BIGINT NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    change_version BIGINT,
+    CONSTRAINT pk_courses PRIMARY KEY (id),
+    CONSTRAINT uk_courses_name UNIQUE (name)
+);
+
+CREATE TABLE IF NOT EXISTS grades (
+    id BIGINT NOT NULL,
+    value DOUBLE PRECISION NOT NULL,
+    student_id BIGINT NOT NULL,
+    course_id BIGINT NOT NULL,
+    change_version BIGINT,
+    CONSTRAINT pk_grades PRIMARY KEY (id),
+    CONSTRAINT uk_grades_student_course UNIQUE (student_id, course_id),
+    -- Usunięcie studenta lub przedmiotu usuwa jego oceny w bazie (removeStudent nie wczytuje ocen)
+    CONSTRAINT fk_grades_student FOREIGN KEY (student_id) REFERENCES students (id) ON DELETE CASCADE,
+    CONSTRAINT fk_grades_course FOREIGN KEY (course_id) REFERENCES courses (id) ON DELETE CASCADE
+);
+
+-- Usunięcia dla synchronizacji przyrostowej (getStudentsChangedSince)
+CREATE TABLE IF NOT EXISTS tombstones (
+    id BIGINT NOT NULL,
+    change_version BIGINT NOT NULL,
+    student_id BIGINT NOT NULL,
+    course_name VARCHAR(255),
+    CONSTRAINT pk_tombstones PRIMARY KEY (id)
+);
+
+-- Bazy sprzed synchronizacji przyrostowej nie mają wersji zmian (NULL - wiersz sprzed pierwszej zmiany)
+ALTER TABLE students ADD COLUMN IF NOT EXISTS change_version BIGINT;
+ALTER TABLE courses ADD COLUMN IF NOT EXISTS change_version BIGINT;
+ALTER TABLE grades ADD COLUMN IF NOT EXISTS change_version BIGINT;
+
+CREATE INDEX IF NOT EXISTS idx_students_change_version ON students (change_version);
+CREATE INDEX IF NOT EXISTS idx_courses_change_version ON courses (change_version);
+CREATE INDEX IF NOT EXISTS idx_grades_change_version ON grades (change_version);
+CREATE INDEX IF NOT EXISTS idx_tombstones_change_version ON tombstones (change_version);
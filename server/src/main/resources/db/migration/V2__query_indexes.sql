@@ -0,0 +1,17 @@
+-- Indeksy pod zapytania serwera
+
+-- Oceny studenta (getGradesForStudent, getGradesForStudents, eksport dziennika): wszystkie kolumny ocen
+-- są w indeksie, więc baza nie czyta tabeli grades, a przedmiot dołącza po kluczu głównym
+CREATE INDEX IF NOT EXISTS idx_grades_student_course_value ON grades (student_id, course_id, value, id);
+
+-- Oceny przedmiotu - klucz obcy course_id (PostgreSQL nie indeksuje go sam; ON DELETE CASCADE przy usuwaniu przedmiotu)
+CREATE INDEX IF NOT EXISTS idx_grades_course ON grades (course_id);
+
+-- Stronicowanie po nazwisku (getStudentsPage z LAST_NAME): ORDER BY last_name, id i warunek keyset
+CREATE INDEX IF NOT EXISTS idx_students_last_name ON students (last_name, id);
+
+-- Bazy utworzone przez hbm2ddl przy GenerationType.IDENTITY mają sekwencje z krokiem 1
+ALTER SEQUENCE IF EXISTS students_id_seq INCREMENT BY 50;
+ALTER SEQUENCE IF EXISTS courses_id_seq INCREMENT BY 50;
+ALTER SEQUENCE IF EXISTS grades_id_seq INCREMENT BY 50;
+ALTER SEQUENCE IF EXISTS tombstones_id_seq INCREMENT BY 50;
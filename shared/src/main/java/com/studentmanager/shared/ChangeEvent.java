@@ -0,0 +1,79 @@
+package com.studentmanager.shared;
+
+import java.io.Serializable;
+
+// Zmiana danych wysyłana przez serwer do subskrybentów
+public class ChangeEvent implements Serializable {
+    public enum Type {
+        STUDENT_ADDED,
+        STUDENT_REMOVED,
+        COURSE_ADDED,
+        GRADE_ADDED,
+        GRADE_REMOVED,
+        // Zbyt wiele zmian naraz - klient powinien pobrać dane od nowa
+        RESYNC
+    }
+
+    private final Type type;
+    private final Long studentId;
+    private final StudentDTO student;
+    private final String courseName;
+    private final GradeDTO grade;
+    // Powiadomienia: wersja zmian, do której odbiorca ma już wszystkie zdarzenia (0 - nieznana)
+    private final long version;
+
+    private ChangeEvent(Type type, Long studentId, StudentDTO student, String courseName, GradeDTO grade, long version) {
+        this.type = type;
+        this.studentId = studentId;
+        this.student = student;
+        this.courseName = courseName;
+        this.grade = grade;
+        this.version = version;
+    }
+
+    private ChangeEvent(Type type, Long studentId, StudentDTO student, String courseName, GradeDTO grade) {
+        this(type, studentId, student, courseName, grade, 0);
+    }
+
+    public ChangeEvent withVersion(long version) {
+        return new ChangeEvent(type, studentId, student, courseName, grade, version);
+    }
+
+    public static ChangeEvent studentAdded(StudentDTO student) {
+        return new ChangeEvent(Type.STUDENT_ADDED, student.getId(), student, null, null);
+    }
+
+    public static ChangeEvent studentRemoved(Long studentId) {
+        return new ChangeEvent(Type.STUDENT_REMOVED, studentId, null, null, null);
+    }
+
+    public static ChangeEvent courseAdded(String courseName) {
+        return new ChangeEvent(Type.COURSE_ADDED, null, null, courseName, null);
+    }
+
+    public static ChangeEvent gradeAdded(Long studentId, GradeDTO grade) {
+        return new ChangeEvent(Type.GRADE_ADDED, studentId, null, grade.getCourseName(), grade);
+    }
+
+    public static ChangeEvent gradeRemoved(Long studentId, String courseName) {
+        return new ChangeEvent(Type.GRADE_REMOVED, studentId, null, courseName, null);
+    }
+
+    public static ChangeEvent resync() {
+        return new ChangeEvent(Type.RESYNC, null, null, null, null);
+    }
+
+    public Type getType() { return type; }
+    public Long getStudentId() { return studentId; }
+    // Tylko dla STUDENT_ADDED
+    public StudentDTO getStudent() { return student; }
+    public String getCourseName() { return courseName; }
+    // Tylko dla GRADE_ADDED
+    public GradeDTO getGrade() { return grade; }
+    public long getVersion() { return version; }
+
+    @Override
+    public String toString() {
+        return type + (studentId != null ? " student=" + studentId : "") + (courseName != null ? " " + courseName : "");
+    }
+}
@@ -0,0 +1,31 @@
+package com.studentmanager.shared;
+
+import java.io.Serializable;
+import java.util.List;
+
+// Wynik getStudentsChangedSince - zmiany od wersji klienta w kolejności ich zatwierdzenia
+public class ChangeLog implements Serializable {
+    private final long version;
+    private final List<ChangeEvent> events;
+    private final boolean resync;
+
+    private ChangeLog(long version, List<ChangeEvent> events, boolean resync) {
+        this.version = version;
+        this.events = events;
+        this.resync = resync;
+    }
+
+    public static ChangeLog of(long version, List<ChangeEvent> events) {
+        return new ChangeLog(version, events, false);
+    }
+
+    // Wersja klienta nieznana albo zmian jest zbyt wiele - klient pobiera całą listę
+    public static ChangeLog resync(long version) {
+        return new ChangeLog(version, List.of(), true);
+    }
+
+    // Wersja, którą klient przekazuje przy następnej synchronizacji
+    public long getVersion() { return version; }
+    public List<ChangeEvent> getEvents() { return events; }
+    public boolean isResync() { return resync; }
+}
@@ -4,16 +4,23 @@ import javax.persistence.*;
 import java.io.Serializable;
 
 @Entity
-@Table(name = "courses")
+// Cache drugiego poziomu, jeśli włączony na serwerze (cache.l2.enabled)
+@Cacheable
+@Table(name = "courses", indexes = @Index(name = "idx_courses_change_version", columnList = "change_version"))
 public class Course implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "courses_seq")
+    @SequenceGenerator(name = "courses_seq", sequenceName = "courses_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "name", nullable = false, unique = true)
     private String name;
 
+    // Wersja transakcji, która zapisała wiersz (synchronizacja przyrostowa); null dla wierszy sprzed jej wprowadzenia
+    @Column(name = "change_version")
+    private Long changeVersion;
+
     public Course() {}
 
     public Course(String name) {
@@ -24,6 +31,8 @@ public class Course implements Serializable {
     public void setId(Long id) { this.id = id; }
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
+    public Long getChangeVersion() { return changeVersion; }
+    public void setChangeVersion(Long changeVersion) { this.changeVersion = changeVersion; }
     
     @Override
     public String toString() {
@@ -0,0 +1,29 @@
+package com.studentmanager.shared;
+
+import java.io.Serializable;
+
+// Pozycja w rankingu przedmiotu (keyset) - ocena i id studenta ostatniego wiersza poprzedniej strony
+public class CourseRankingCursor implements Serializable {
+    private final String courseName;
+    private final Double afterValue;
+    private final Long afterStudentId;
+
+    public CourseRankingCursor(String courseName, Double afterValue, Long afterStudentId) {
+        this.courseName = courseName;
+        this.afterValue = afterValue;
+        this.afterStudentId = afterStudentId;
+    }
+
+    // Kursor na początek rankingu (najwyższe oceny)
+    public static CourseRankingCursor first(String courseName) {
+        return new CourseRankingCursor(courseName, null, null);
+    }
+
+    public String getCourseName() { return courseName; }
+    public Double getAfterValue() { return afterValue; }
+    public Long getAfterStudentId() { return afterStudentId; }
+
+    public boolean isFirst() {
+        return afterStudentId == null;
+    }
+}
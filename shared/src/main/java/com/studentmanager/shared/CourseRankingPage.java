@@ -0,0 +1,23 @@
+package com.studentmanager.shared;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class CourseRankingPage implements Serializable {
+    private final List<RankingEntryDTO> entries;
+    private final CourseRankingCursor nextCursor;
+
+    public CourseRankingPage(List<RankingEntryDTO> entries, CourseRankingCursor nextCursor) {
+        this.entries = entries;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<RankingEntryDTO> getEntries() { return entries; }
+
+    // Kursor następnej strony, null gdy to ostatnia strona
+    public CourseRankingCursor getNextCursor() { return nextCursor; }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
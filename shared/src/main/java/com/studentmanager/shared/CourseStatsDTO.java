@@ -0,0 +1,35 @@
+package com.studentmanager.shared;
+
+import java.io.Serializable;
+import java.util.Map;
+
+public class CourseStatsDTO implements Serializable {
+    private final String courseName;
+    private final int count;
+    private final double mean;
+    private final double min;
+    private final double max;
+    private final Map<Double, Integer> histogram;
+
+    public CourseStatsDTO(String courseName, int count, double mean, double min, double max, Map<Double, Integer> histogram) {
+        this.courseName = courseName;
+        this.count = count;
+        this.mean = mean;
+        this.min = min;
+        this.max = max;
+        this.histogram = histogram;
+    }
+
+    public String getCourseName() { return courseName; }
+    public int getCount() { return count; }
+    public double getMean() { return mean; }
+    public double getMin() { return min; }
+    public double getMax() { return max; }
+    // Ocena -> liczba studentów z tą oceną (rosnąco)
+    public Map<Double, Integer> getHistogram() { return histogram; }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d ocen, średnia %.2f (min %.1f, max %.1f)", courseName, count, mean, min, max);
+    }
+}
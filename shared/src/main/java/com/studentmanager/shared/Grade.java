@@ -9,12 +9,14 @@ import org.hibernate.annotations.OnDeleteAction;
 @Table(name = "grades", 
     uniqueConstraints = {
         @UniqueConstraint(columnNames = {"student_id", "course_id"})
-    }
+    },
+    indexes = @Index(name = "idx_grades_change_version", columnList = "change_version")
 )
 public class Grade implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "grades_seq")
+    @SequenceGenerator(name = "grades_seq", sequenceName = "grades_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -30,6 +32,10 @@ public class Grade implements Serializable {
     @OnDelete(action = OnDeleteAction.CASCADE)
     private Course course;
 
+    // Wersja transakcji, która zapisała wiersz (synchronizacja przyrostowa); null dla wierszy sprzed jej wprowadzenia
+    @Column(name = "change_version")
+    private Long changeVersion;
+
     public Grade() {}
 
     public Grade(Double value, Student student, Course course) {
@@ -46,4 +52,6 @@ public class Grade implements Serializable {
     public void setStudent(Student student) { this.student = student; }
     public Course getCourse() { return course; }
     public void setCourse(Course course) { this.course = course; }
+    public Long getChangeVersion() { return changeVersion; }
+    public void setChangeVersion(Long changeVersion) { this.changeVersion = changeVersion; }
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.studentmanager.shared;
+
+import java.io.Serializable;
+
+// Wiersz importu ocen - student wskazany numerem indeksu, przedmiot nazwą
+public class GradeEntryDTO implements Serializable {
+    private String indexNumber;
+    private String courseName;
+    private Double value;
+
+    public GradeEntryDTO() {}
+
+    public GradeEntryDTO(String indexNumber, String courseName, Double value) {
+        this.indexNumber = indexNumber;
+        this.courseName = courseName;
+        this.value = value;
+    }
+
+    public String getIndexNumber() { return indexNumber; }
+    public String getCourseName() { return courseName; }
+    public Double getValue() { return value; }
+
+    @Override
+    public String toString() {
+        return indexNumber + " " + courseName + ": " + value;
+    }
+}
@@ -0,0 +1,13 @@
+package com.studentmanager.shared;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+
+// Kursor eksportu po stronie serwera - kolejne paczki wierszy bez trzymania całego dziennika w pamięci
+public interface GradebookExport extends Remote {
+    // Pusta lista oznacza koniec danych (kursor jest wtedy zamykany)
+    List<GradebookRow> nextChunk() throws RemoteException;
+
+    void close() throws RemoteException;
+}
@@ -0,0 +1,14 @@
+package com.studentmanager.shared;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+
+// Odbiorca importu po stronie serwera - klient wysyła plik paczkami.
+// Brakujący studenci są dodawani, istniejące oceny poprawiane na wartość z pliku.
+public interface GradebookImport extends Remote {
+    // Wyniki wierszy paczki; numery wierszy liczone od początku importu
+    ImportReport write(List<GradebookRow> rows) throws RemoteException;
+
+    void close() throws RemoteException;
+}
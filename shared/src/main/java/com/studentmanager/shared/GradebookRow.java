@@ -0,0 +1,33 @@
+package com.studentmanager.shared;
+
+import java.io.Serializable;
+
+// Wiersz dziennika ocen przy eksporcie/imporcie CSV: student i jedna jego ocena.
+// Student bez ocen ma jeden wiersz bez przedmiotu i oceny.
+public class GradebookRow implements Serializable {
+    private final String indexNumber;
+    private final String firstName;
+    private final String lastName;
+    private final String courseName;
+    private final Double value;
+
+    public GradebookRow(String indexNumber, String firstName, String lastName, String courseName, Double value) {
+        this.indexNumber = indexNumber;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.courseName = courseName;
+        this.value = value;
+    }
+
+    public String getIndexNumber() { return indexNumber; }
+    public String getFirstName() { return firstName; }
+    public String getLastName() { return lastName; }
+    // null - wiersz opisuje tylko studenta
+    public String getCourseName() { return courseName; }
+    public Double getValue() { return value; }
+
+    @Override
+    public String toString() {
+        return indexNumber + " " + courseName + ": " + value;
+    }
+}
@@ -0,0 +1,27 @@
+package com.studentmanager.shared;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class ImportReport implements Serializable {
+    private final List<ImportRowResult> rows;
+
+    public ImportReport(List<ImportRowResult> rows) {
+        this.rows = rows;
+    }
+
+    public List<ImportRowResult> getRows() { return rows; }
+
+    public int getSucceeded() {
+        return (int) rows.stream().filter(ImportRowResult::isSuccess).count();
+    }
+
+    public int getFailed() {
+        return rows.size() - getSucceeded();
+    }
+
+    @Override
+    public String toString() {
+        return "Zaimportowano " + getSucceeded() + "/" + rows.size() + " wierszy";
+    }
+}
@@ -0,0 +1,37 @@
+package com.studentmanager.shared;
+
+import java.io.Serializable;
+
+public class ImportRowResult implements Serializable {
+    private final int row;
+    private final Long id;
+    private final String error;
+
+    private ImportRowResult(int row, Long id, String error) {
+        this.row = row;
+        this.id = id;
+        this.error = error;
+    }
+
+    public static ImportRowResult ok(int row, Long id) {
+        return new ImportRowResult(row, id, null);
+    }
+
+    public static ImportRowResult failed(int row, String error) {
+        return new ImportRowResult(row, null, error);
+    }
+
+    // Numer wiersza w przesłanej liście (od 0)
+    public int getRow() { return row; }
+    public Long getId() { return id; }
+    public String getError() { return error; }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return isSuccess() ? row + ": OK (" + id + ")" : row + ": " + error;
+    }
+}
@@ -0,0 +1,43 @@
+package com.studentmanager.shared;
+
+import java.io.Serializable;
+
+// Statystyki jednej metody StudentService (czasy w mikrosekundach)
+public class MethodStats implements Serializable {
+    private final String method;
+    private final long count;
+    private final long errors;
+    private final double callsPerSecond;
+    private final double meanMicros;
+    private final long p50Micros;
+    private final long p99Micros;
+    private final long maxMicros;
+
+    public MethodStats(String method, long count, long errors, double callsPerSecond,
+                       double meanMicros, long p50Micros, long p99Micros, long maxMicros) {
+        this.method = method;
+        this.count = count;
+        this.errors = errors;
+        this.callsPerSecond = callsPerSecond;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    public String getMethod() { return method; }
+    public long getCount() { return count; }
+    public long getErrors() { return errors; }
+    // Średnia z ostatniej minuty
+    public double getCallsPerSecond() { return callsPerSecond; }
+    public double getMeanMicros() { return meanMicros; }
+    public long getP50Micros() { return p50Micros; }
+    public long getP99Micros() { return p99Micros; }
+    public long getMaxMicros() { return maxMicros; }
+
+    @Override
+    public String toString() {
+        return String.format("%s: n=%d err=%d %.1f/s p50=%dus p99=%dus max=%dus",
+                method, count, errors, callsPerSecond, p50Micros, p99Micros, maxMicros);
+    }
+}
@@ -0,0 +1,484 @@
+package com.studentmanager.shared;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+// Binarny protokół transportu NIO (alternatywa dla RMI, te same operacje co StudentService).
+// Ramka: int długość reszty ramki, long id korelacji, bajt operacji (żądanie) albo statusu (odpowiedź), dane.
+// Klient może wysłać wiele żądań bez czekania na odpowiedzi - serwer odpowiada w dowolnej kolejności
+// z tym samym id; id 0 to zdarzenia wysyłane przez serwer do subskrybenta (PUSH_CHANGES).
+// Listy studentów i ocen idą w formacie kolumnowym PackedStudentList/PackedGradeList, reszta pole po polu.
+public final class NioProtocol {
+    // Największa dopuszczalna ramka - dłuższa oznacza błąd protokołu i zamknięcie połączenia.
+    // Żądania klienta mają znacznie mniejszy limit niż odpowiedzi: serwer przyjmuje je od każdego, kto się połączy,
+    // a duże importy i tak idą paczkami (importGradebook)
+    public static final int MAX_FRAME = 64 * 1024 * 1024;
+    public static final int MAX_REQUEST_FRAME = 8 * 1024 * 1024;
+    // long id + bajt operacji/statusu
+    public static final int FRAME_HEADER = 9;
+    public static final long PUSH_ID = 0;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_ERROR = 1;
+    public static final byte PUSH_CHANGES = 2;
+
+    public static final byte GET_ALL_STUDENTS = 1;
+    public static final byte GET_STUDENTS_PAGE = 2;
+    public static final byte SEARCH_STUDENTS = 3;
+    public static final byte GET_GRADES = 4;
+    public static final byte GET_GRADES_BATCH = 5;
+    public static final byte ADD_STUDENT = 6;
+    public static final byte REMOVE_STUDENT = 7;
+    public static final byte ADD_COURSE = 8;
+    public static final byte ADD_GRADE = 9;
+    public static final byte REMOVE_GRADE = 10;
+    public static final byte ADD_STUDENTS = 11;
+    public static final byte ADD_GRADES = 12;
+    public static final byte EXPORT_OPEN = 13;
+    public static final byte EXPORT_NEXT = 14;
+    public static final byte EXPORT_CLOSE = 15;
+    public static final byte IMPORT_OPEN = 16;
+    public static final byte IMPORT_WRITE = 17;
+    public static final byte IMPORT_CLOSE = 18;
+    public static final byte STUDENT_STATS = 19;
+    public static final byte COURSE_STATS = 20;
+    public static final byte ALL_COURSE_STATS = 21;
+    public static final byte CHANGES_SINCE = 22;
+    public static final byte SUBSCRIBE = 23;
+    public static final byte UNSUBSCRIBE = 24;
+    public static final byte SERVER_STATS = 25;
+    public static final byte COURSE_RANKING = 26;
+    public static final byte STUDENTS_BELOW = 27;
+
+    // writeUTF przyjmuje najwyżej 64 KB - dłuższe komunikaty błędów są obcinane
+    private static final int MAX_MESSAGE = 4000;
+
+    private NioProtocol() {}
+
+    // Ramka budowana w pamięci; długość jest uzupełniana w finish()
+    public static final class Frame extends ByteArrayOutputStream {
+        public final DataOutputStream out = new DataOutputStream(this);
+
+        public Frame(long id, byte opOrStatus) {
+            super(256);
+            count = 4;
+            for (int shift = 56; shift >= 0; shift -= 8) write((int) (id >>> shift));
+            write(opOrStatus);
+        }
+
+        public ByteBuffer finish() throws IOException {
+            int length = count - 4;
+            if (length > MAX_FRAME) throw new IOException("Ramka przekracza " + MAX_FRAME + " bajtów");
+            buf[0] = (byte) (length >>> 24);
+            buf[1] = (byte) (length >>> 16);
+            buf[2] = (byte) (length >>> 8);
+            buf[3] = (byte) length;
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+
+    // Dane jednej odebranej ramki. Znana liczba pozostałych bajtów pozwala odrzucić liczności list,
+    // które nie zmieszczą się w ramce (WireFormat.readSize), zanim cokolwiek zostanie zaalokowane.
+    public static final class FrameInput extends DataInputStream {
+        public FrameInput(byte[] payload) {
+            super(new ByteArrayInputStream(payload));
+        }
+    }
+
+    // --- Typy proste ---
+
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        WireFormat.writeVarInt(out, value);
+    }
+
+    public static int readVarInt(DataInput in) throws IOException {
+        return WireFormat.readVarInt(in);
+    }
+
+    public static void writeLong(DataOutput out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) WireFormat.writeVarLong(out, value);
+    }
+
+    public static Long readLong(DataInput in) throws IOException {
+        return in.readBoolean() ? WireFormat.readVarLong(in) : null;
+    }
+
+    public static void writeDouble(DataOutput out, Double value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeDouble(value);
+    }
+
+    public static Double readDouble(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readDouble() : null;
+    }
+
+    public static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    public static void writeError(DataOutput out, Throwable error) throws IOException {
+        String message = error.getMessage() != null ? error.getMessage() : error.toString();
+        out.writeUTF(message.length() > MAX_MESSAGE ? message.substring(0, MAX_MESSAGE) : message);
+    }
+
+    public static void writeIds(DataOutput out, List<Long> ids) throws IOException {
+        writeVarInt(out, ids.size());
+        for (Long id : ids) writeLong(out, id);
+    }
+
+    public static List<Long> readIds(DataInput in) throws IOException {
+        int size = WireFormat.readSize(in, 1);
+        List<Long> ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) ids.add(readLong(in));
+        return ids;
+    }
+
+    // --- Studenci i oceny ---
+
+    public static void writeStudent(DataOutput out, StudentDTO student) throws IOException {
+        out.writeBoolean(student != null);
+        if (student == null) return;
+        writeLong(out, student.getId());
+        writeString(out, student.getFirstName());
+        writeString(out, student.getLastName());
+        writeString(out, student.getIndexNumber());
+    }
+
+    public static StudentDTO readStudent(DataInput in) throws IOException {
+        if (!in.readBoolean()) return null;
+        return new StudentDTO(readLong(in), readString(in), readString(in), readString(in));
+    }
+
+    public static void writeGrade(DataOutput out, GradeDTO grade) throws IOException {
+        out.writeBoolean(grade != null);
+        if (grade == null) return;
+        writeLong(out, grade.getId());
+        writeString(out, grade.getCourseName());
+        writeDouble(out, grade.getValue());
+    }
+
+    public static GradeDTO readGrade(DataInput in) throws IOException {
+        if (!in.readBoolean()) return null;
+        return new GradeDTO(readLong(in), readString(in), readDouble(in));
+    }
+
+    public static void writeStudents(DataOutput out, List<StudentDTO> students) throws IOException {
+        PackedStudentList.of(students).writeTo(out);
+    }
+
+    public static List<StudentDTO> readStudents(DataInput in) throws IOException {
+        return PackedStudentList.readFrom(in);
+    }
+
+    public static void writeGrades(DataOutput out, List<GradeDTO> grades) throws IOException {
+        out.writeBoolean(grades != null);
+        if (grades != null) PackedGradeList.of(grades).writeTo(out);
+    }
+
+    public static List<GradeDTO> readGrades(DataInput in) throws IOException {
+        return in.readBoolean() ? PackedGradeList.readFrom(in) : null;
+    }
+
+    public static void writeGradesByStudent(DataOutput out, Map<Long, List<GradeDTO>> grades) throws IOException {
+        writeVarInt(out, grades.size());
+        for (Map.Entry<Long, List<GradeDTO>> entry : grades.entrySet()) {
+            writeLong(out, entry.getKey());
+            writeGrades(out, entry.getValue());
+        }
+    }
+
+    public static Map<Long, List<GradeDTO>> readGradesByStudent(DataInput in) throws IOException {
+        int size = WireFormat.readSize(in, 2);
+        Map<Long, List<GradeDTO>> grades = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) grades.put(readLong(in), readGrades(in));
+        return grades;
+    }
+
+    public static void writeCursor(DataOutput out, StudentPageCursor cursor) throws IOException {
+        out.writeBoolean(cursor != null);
+        if (cursor == null) return;
+        out.writeByte(cursor.getSortKey() != null ? cursor.getSortKey().ordinal() : -1);
+        writeString(out, cursor.getAfterKey());
+        writeLong(out, cursor.getAfterId());
+    }
+
+    public static StudentPageCursor readCursor(DataInput in) throws IOException {
+        if (!in.readBoolean()) return null;
+        int sortKey = in.readByte();
+        return new StudentPageCursor(sortKey >= 0 ? StudentSortKey.values()[sortKey] : null, readString(in), readLong(in));
+    }
+
+    public static void writePage(DataOutput out, StudentPage page) throws IOException {
+        writeStudents(out, page.getStudents());
+        writeCursor(out, page.getNextCursor());
+    }
+
+    public static StudentPage readPage(DataInput in) throws IOException {
+        return new StudentPage(readStudents(in), readCursor(in));
+    }
+
+    // --- Import i eksport ---
+
+    public static void writeGradeEntries(DataOutput out, List<GradeEntryDTO> entries) throws IOException {
+        writeVarInt(out, entries.size());
+        for (GradeEntryDTO entry : entries) {
+            out.writeBoolean(entry != null);
+            if (entry == null) continue;
+            writeString(out, entry.getIndexNumber());
+            writeString(out, entry.getCourseName());
+            writeDouble(out, entry.getValue());
+        }
+    }
+
+    public static List<GradeEntryDTO> readGradeEntries(DataInput in) throws IOException {
+        int size = WireFormat.readSize(in, 1);
+        List<GradeEntryDTO> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(in.readBoolean() ? new GradeEntryDTO(readString(in), readString(in), readDouble(in)) : null);
+        }
+        return entries;
+    }
+
+    public static void writeGradebookRows(DataOutput out, List<GradebookRow> rows) throws IOException {
+        writeVarInt(out, rows.size());
+        for (GradebookRow row : rows) {
+            out.writeBoolean(row != null);
+            if (row == null) continue;
+            writeString(out, row.getIndexNumber());
+            writeString(out, row.getFirstName());
+            writeString(out, row.getLastName());
+            writeString(out, row.getCourseName());
+            writeDouble(out, row.getValue());
+        }
+    }
+
+    public static List<GradebookRow> readGradebookRows(DataInput in) throws IOException {
+        int size = WireFormat.readSize(in, 1);
+        List<GradebookRow> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            rows.add(in.readBoolean()
+                    ? new GradebookRow(readString(in), readString(in), readString(in), readString(in), readDouble(in))
+                    : null);
+        }
+        return rows;
+    }
+
+    public static void writeReport(DataOutput out, ImportReport report) throws IOException {
+        writeVarInt(out, report.getRows().size());
+        for (ImportRowResult row : report.getRows()) {
+            writeVarInt(out, row.getRow());
+            out.writeBoolean(row.isSuccess());
+            if (row.isSuccess()) writeLong(out, row.getId());
+            else out.writeUTF(row.getError());
+        }
+    }
+
+    public static ImportReport readReport(DataInput in) throws IOException {
+        int size = WireFormat.readSize(in, 2);
+        List<ImportRowResult> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int row = readVarInt(in);
+            rows.add(in.readBoolean() ? ImportRowResult.ok(row, readLong(in)) : ImportRowResult.failed(row, in.readUTF()));
+        }
+        return new ImportReport(rows);
+    }
+
+    // --- Statystyki ---
+
+    public static void writeStudentStats(DataOutput out, StudentStatsDTO stats) throws IOException {
+        out.writeBoolean(stats != null);
+        if (stats == null) return;
+        writeLong(out, stats.getStudentId());
+        writeVarInt(out, stats.getCount());
+        out.writeDouble(stats.getMean());
+    }
+
+    public static StudentStatsDTO readStudentStats(DataInput in) throws IOException {
+        if (!in.readBoolean()) return null;
+        return new StudentStatsDTO(readLong(in), readVarInt(in), in.readDouble());
+    }
+
+    public static void writeCourseStats(DataOutput out, CourseStatsDTO stats) throws IOException {
+        out.writeBoolean(stats != null);
+        if (stats == null) return;
+        writeString(out, stats.getCourseName());
+        writeVarInt(out, stats.getCount());
+        out.writeDouble(stats.getMean());
+        out.writeDouble(stats.getMin());
+        out.writeDouble(stats.getMax());
+        writeVarInt(out, stats.getHistogram().size());
+        for (Map.Entry<Double, Integer> bucket : stats.getHistogram().entrySet()) {
+            out.writeDouble(bucket.getKey());
+            writeVarInt(out, bucket.getValue());
+        }
+    }
+
+    public static CourseStatsDTO readCourseStats(DataInput in) throws IOException {
+        if (!in.readBoolean()) return null;
+        String courseName = readString(in);
+        int count = readVarInt(in);
+        double mean = in.readDouble();
+        double min = in.readDouble();
+        double max = in.readDouble();
+        int buckets = WireFormat.readSize(in, 9);
+        Map<Double, Integer> histogram = new TreeMap<>();
+        for (int i = 0; i < buckets; i++) histogram.put(in.readDouble(), readVarInt(in));
+        return new CourseStatsDTO(courseName, count, mean, min, max, histogram);
+    }
+
+    public static void writeCourseStatsList(DataOutput out, List<CourseStatsDTO> stats) throws IOException {
+        writeVarInt(out, stats.size());
+        for (CourseStatsDTO course : stats) writeCourseStats(out, course);
+    }
+
+    public static List<CourseStatsDTO> readCourseStatsList(DataInput in) throws IOException {
+        int size = WireFormat.readSize(in, 1);
+        List<CourseStatsDTO> stats = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) stats.add(readCourseStats(in));
+        return stats;
+    }
+
+    public static void writeRankingCursor(DataOutput out, CourseRankingCursor cursor) throws IOException {
+        out.writeBoolean(cursor != null);
+        if (cursor == null) return;
+        writeString(out, cursor.getCourseName());
+        writeDouble(out, cursor.getAfterValue());
+        writeLong(out, cursor.getAfterStudentId());
+    }
+
+    public static CourseRankingCursor readRankingCursor(DataInput in) throws IOException {
+        if (!in.readBoolean()) return null;
+        return new CourseRankingCursor(readString(in), readDouble(in), readLong(in));
+    }
+
+    public static void writeRankingEntries(DataOutput out, List<RankingEntryDTO> entries) throws IOException {
+        writeVarInt(out, entries.size());
+        for (RankingEntryDTO entry : entries) {
+            writeVarInt(out, entry.getRank());
+            writeStudent(out, entry.getStudent());
+            out.writeDouble(entry.getValue());
+        }
+    }
+
+    public static List<RankingEntryDTO> readRankingEntries(DataInput in) throws IOException {
+        int size = WireFormat.readSize(in, 10);
+        List<RankingEntryDTO> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) entries.add(new RankingEntryDTO(readVarInt(in), readStudent(in), in.readDouble()));
+        return entries;
+    }
+
+    public static void writeRankingPage(DataOutput out, CourseRankingPage page) throws IOException {
+        writeRankingEntries(out, page.getEntries());
+        writeRankingCursor(out, page.getNextCursor());
+    }
+
+    public static CourseRankingPage readRankingPage(DataInput in) throws IOException {
+        return new CourseRankingPage(readRankingEntries(in), readRankingCursor(in));
+    }
+
+    public static void writeServerStats(DataOutput out, ServerStats stats) throws IOException {
+        out.writeLong(stats.getUptimeMillis());
+        writeVarInt(out, stats.getMethods().size());
+        for (MethodStats m : stats.getMethods().values()) {
+            out.writeUTF(m.getMethod());
+            out.writeLong(m.getCount());
+            out.writeLong(m.getErrors());
+            out.writeDouble(m.getCallsPerSecond());
+            out.writeDouble(m.getMeanMicros());
+            out.writeLong(m.getP50Micros());
+            out.writeLong(m.getP99Micros());
+            out.writeLong(m.getMaxMicros());
+        }
+        writeVarInt(out, stats.getGauges().size());
+        for (Map.Entry<String, Number> gauge : stats.getGauges().entrySet()) {
+            out.writeUTF(gauge.getKey());
+            Number value = gauge.getValue();
+            // Liczby całkowite i zmiennoprzecinkowe rozróżniane, żeby klient dostał ten sam typ
+            boolean integral = value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+            out.writeBoolean(integral);
+            if (integral) out.writeLong(value.longValue());
+            else out.writeDouble(value.doubleValue());
+        }
+    }
+
+    public static ServerStats readServerStats(DataInput in) throws IOException {
+        long uptime = in.readLong();
+        int methodCount = WireFormat.readSize(in, 66);
+        Map<String, MethodStats> methods = new TreeMap<>();
+        for (int i = 0; i < methodCount; i++) {
+            MethodStats m = new MethodStats(in.readUTF(), in.readLong(), in.readLong(), in.readDouble(), in.readDouble(),
+                    in.readLong(), in.readLong(), in.readLong());
+            methods.put(m.getMethod(), m);
+        }
+        int gaugeCount = WireFormat.readSize(in, 11);
+        Map<String, Number> gauges = new TreeMap<>();
+        for (int i = 0; i < gaugeCount; i++) {
+            String name = in.readUTF();
+            gauges.put(name, in.readBoolean() ? (Number) in.readLong() : (Number) in.readDouble());
+        }
+        return new ServerStats(uptime, methods, gauges);
+    }
+
+    // --- Zmiany ---
+
+    public static void writeEvents(DataOutput out, List<ChangeEvent> events) throws IOException {
+        writeVarInt(out, events.size());
+        for (ChangeEvent event : events) {
+            out.writeByte(event.getType().ordinal());
+            writeLong(out, event.getStudentId());
+            writeStudent(out, event.getStudent());
+            writeString(out, event.getCourseName());
+            writeGrade(out, event.getGrade());
+            WireFormat.writeVarLong(out, event.getVersion());
+        }
+    }
+
+    public static List<ChangeEvent> readEvents(DataInput in) throws IOException {
+        int size = WireFormat.readSize(in, 6);
+        List<ChangeEvent> events = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ChangeEvent.Type type = ChangeEvent.Type.values()[in.readByte()];
+            Long studentId = readLong(in);
+            StudentDTO student = readStudent(in);
+            String courseName = readString(in);
+            GradeDTO grade = readGrade(in);
+            long version = WireFormat.readVarLong(in);
+            ChangeEvent event;
+            switch (type) {
+                case STUDENT_ADDED: event = ChangeEvent.studentAdded(student); break;
+                case STUDENT_REMOVED: event = ChangeEvent.studentRemoved(studentId); break;
+                case COURSE_ADDED: event = ChangeEvent.courseAdded(courseName); break;
+                case GRADE_ADDED: event = ChangeEvent.gradeAdded(studentId, grade); break;
+                case GRADE_REMOVED: event = ChangeEvent.gradeRemoved(studentId, courseName); break;
+                default: event = ChangeEvent.resync();
+            }
+            events.add(event.withVersion(version));
+        }
+        return events;
+    }
+
+    public static void writeChangeLog(DataOutput out, ChangeLog log) throws IOException {
+        out.writeBoolean(log.isResync());
+        out.writeLong(log.getVersion());
+        if (!log.isResync()) writeEvents(out, log.getEvents());
+    }
+
+    public static ChangeLog readChangeLog(DataInput in) throws IOException {
+        boolean resync = in.readBoolean();
+        long version = in.readLong();
+        return resync ? ChangeLog.resync(version) : ChangeLog.of(version, readEvents(in));
+    }
+}
@@ -0,0 +1,308 @@
+package com.studentmanager.shared;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.rmi.RemoteException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// StudentService po transporcie NIO (NioProtocol) - jedno połączenie TCP współdzielone przez wszystkie wątki klienta.
+// Żądania są wysyłane od razu, bez czekania na wcześniejsze odpowiedzi; wątek czytający przypisuje odpowiedzi
+// do oczekujących wywołań po id korelacji. Zerwane połączenie kończy błędem wszystkie oczekujące wywołania
+// (bez automatycznego ponownego łączenia).
+public class NioStudentService implements StudentService, Closeable {
+    private interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private interface Reply<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    private static final Body EMPTY = out -> {};
+    private static final Reply<Void> NONE = in -> null;
+
+    private final Socket socket;
+    private final OutputStream output;
+    private final Thread reader;
+    private final long timeoutMillis;
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<Long, CompletableFuture<byte[]>> pending = new ConcurrentHashMap<>();
+    // Lokalni odbiorcy zmian - na serwerze połączenie ma jedną subskrypcję
+    private final Set<StudentChangeListener> listeners = new CopyOnWriteArraySet<>();
+    private volatile IOException failure;
+
+    public NioStudentService(String host, int port) throws IOException {
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(Long.getLong("studentmanager.nio.timeoutSeconds", 60));
+        this.socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(host, port), (int) Math.min(timeoutMillis, Integer.MAX_VALUE));
+        this.output = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+        this.reader = new Thread(this::readLoop, "nio-client-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private <T> T call(byte op, Body body, Reply<T> reply) throws RemoteException {
+        if (failure != null) throw new RemoteException("Połączenie z serwerem zostało zerwane", failure);
+        long id = ids.incrementAndGet();
+        CompletableFuture<byte[]> response = new CompletableFuture<>();
+        pending.put(id, response);
+        try {
+            NioProtocol.Frame frame = new NioProtocol.Frame(id, op);
+            body.write(frame.out);
+            ByteBuffer bytes = frame.finish();
+            if (bytes.limit() - 4 > NioProtocol.MAX_REQUEST_FRAME) {
+                throw new RemoteException("Żądanie przekracza " + NioProtocol.MAX_REQUEST_FRAME
+                        + " bajtów - podziel dane na mniejsze paczki");
+            }
+            synchronized (output) {
+                output.write(bytes.array(), 0, bytes.limit());
+                output.flush();
+            }
+            byte[] payload = response.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return reply.read(new NioProtocol.FrameInput(payload));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RemoteException ? (RemoteException) cause : new RemoteException(cause.getMessage(), cause);
+        } catch (TimeoutException e) {
+            throw new RemoteException("Przekroczono czas oczekiwania na odpowiedź serwera");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Przerwano oczekiwanie na odpowiedź serwera", e);
+        } catch (RemoteException e) {
+            // odrzucone przed wysłaniem - połączenie jest sprawne
+            throw e;
+        } catch (IOException e) {
+            fail(e);
+            throw new RemoteException("Błąd połączenia z serwerem: " + e.getMessage(), e);
+        } finally {
+            pending.remove(id);
+        }
+    }
+
+    private void readLoop() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024))) {
+            while (true) {
+                int length = in.readInt();
+                if (length < NioProtocol.FRAME_HEADER || length > NioProtocol.MAX_FRAME) {
+                    throw new IOException("Nieprawidłowa długość ramki: " + length);
+                }
+                long id = in.readLong();
+                byte status = in.readByte();
+                byte[] payload = new byte[length - NioProtocol.FRAME_HEADER];
+                in.readFully(payload);
+                if (id == NioProtocol.PUSH_ID) {
+                    deliver(payload);
+                    continue;
+                }
+                CompletableFuture<byte[]> response = pending.get(id);
+                // Brak - wywołanie przekroczyło czas i już nie czeka
+                if (response == null) continue;
+                if (status == NioProtocol.STATUS_OK) {
+                    response.complete(payload);
+                } else {
+                    response.completeExceptionally(new RemoteException(
+                            new NioProtocol.FrameInput(payload).readUTF()));
+                }
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    // Zdarzenia przekazywane w wątku czytającym - odbiorca powinien je tylko przekazać dalej (np. Platform.runLater)
+    private void deliver(byte[] payload) throws IOException {
+        List<ChangeEvent> events = NioProtocol.readEvents(new NioProtocol.FrameInput(payload));
+        for (StudentChangeListener listener : listeners) {
+            try {
+                listener.onChanges(events);
+            } catch (RemoteException | RuntimeException e) {
+                listeners.remove(listener);
+            }
+        }
+    }
+
+    private void fail(IOException e) {
+        if (failure == null) failure = e;
+        RemoteException error = new RemoteException("Połączenie z serwerem zostało zerwane", failure);
+        for (CompletableFuture<byte[]> response : pending.values()) response.completeExceptionally(error);
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // już zamknięte
+        }
+    }
+
+    @Override
+    public void close() {
+        fail(new EOFException("Połączenie zamknięte przez klienta"));
+    }
+
+    @Override
+    public List<StudentDTO> getAllStudents() throws RemoteException {
+        return call(NioProtocol.GET_ALL_STUDENTS, EMPTY, NioProtocol::readStudents);
+    }
+
+    @Override
+    public StudentPage getStudentsPage(StudentPageCursor cursor, int limit) throws RemoteException {
+        return call(NioProtocol.GET_STUDENTS_PAGE, out -> {
+            NioProtocol.writeCursor(out, cursor);
+            out.writeInt(limit);
+        }, NioProtocol::readPage);
+    }
+
+    @Override
+    public List<StudentDTO> searchStudents(String query, int limit) throws RemoteException {
+        return call(NioProtocol.SEARCH_STUDENTS, out -> {
+            NioProtocol.writeString(out, query);
+            out.writeInt(limit);
+        }, NioProtocol::readStudents);
+    }
+
+    @Override
+    public List<GradeDTO> getGradesForStudent(Long studentId) throws RemoteException {
+        return call(NioProtocol.GET_GRADES, out -> NioProtocol.writeLong(out, studentId), NioProtocol::readGrades);
+    }
+
+    @Override
+    public Map<Long, List<GradeDTO>> getGradesForStudents(List<Long> studentIds) throws RemoteException {
+        return call(NioProtocol.GET_GRADES_BATCH, out -> NioProtocol.writeIds(out, studentIds), NioProtocol::readGradesByStudent);
+    }
+
+    @Override
+    public void addStudent(StudentDTO student) throws RemoteException {
+        call(NioProtocol.ADD_STUDENT, out -> NioProtocol.writeStudent(out, student), NONE);
+    }
+
+    @Override
+    public void removeStudent(Long studentId) throws RemoteException {
+        call(NioProtocol.REMOVE_STUDENT, out -> NioProtocol.writeLong(out, studentId), NONE);
+    }
+
+    @Override
+    public void addCourse(String courseName) throws RemoteException {
+        call(NioProtocol.ADD_COURSE, out -> NioProtocol.writeString(out, courseName), NONE);
+    }
+
+    @Override
+    public void addGrade(Long studentId, String courseName, int gradeValue) throws RemoteException {
+        call(NioProtocol.ADD_GRADE, out -> {
+            NioProtocol.writeLong(out, studentId);
+            NioProtocol.writeString(out, courseName);
+            out.writeInt(gradeValue);
+        }, NONE);
+    }
+
+    @Override
+    public void removeGrade(Long studentId, String courseName) throws RemoteException {
+        call(NioProtocol.REMOVE_GRADE, out -> {
+            NioProtocol.writeLong(out, studentId);
+            NioProtocol.writeString(out, courseName);
+        }, NONE);
+    }
+
+    @Override
+    public ImportReport addStudents(List<StudentDTO> students) throws RemoteException {
+        return call(NioProtocol.ADD_STUDENTS, out -> NioProtocol.writeStudents(out, students), NioProtocol::readReport);
+    }
+
+    @Override
+    public ImportReport addGrades(List<GradeEntryDTO> grades) throws RemoteException {
+        return call(NioProtocol.ADD_GRADES, out -> NioProtocol.writeGradeEntries(out, grades), NioProtocol::readReport);
+    }
+
+    // Eksport i import to uchwyty po stronie serwera, zamykane razem z połączeniem
+    @Override
+    public GradebookExport exportGradebook(int chunkSize) throws RemoteException {
+        long handle = call(NioProtocol.EXPORT_OPEN, out -> out.writeInt(chunkSize), DataInputStream::readLong);
+        return new GradebookExport() {
+            @Override
+            public List<GradebookRow> nextChunk() throws RemoteException {
+                return call(NioProtocol.EXPORT_NEXT, out -> out.writeLong(handle), NioProtocol::readGradebookRows);
+            }
+
+            @Override
+            public void close() throws RemoteException {
+                call(NioProtocol.EXPORT_CLOSE, out -> out.writeLong(handle), NONE);
+            }
+        };
+    }
+
+    @Override
+    public GradebookImport importGradebook() throws RemoteException {
+        long handle = call(NioProtocol.IMPORT_OPEN, EMPTY, DataInputStream::readLong);
+        return new GradebookImport() {
+            @Override
+            public ImportReport write(List<GradebookRow> rows) throws RemoteException {
+                return call(NioProtocol.IMPORT_WRITE, out -> {
+                    out.writeLong(handle);
+                    NioProtocol.writeGradebookRows(out, rows);
+                }, NioProtocol::readReport);
+            }
+
+            @Override
+            public void close() throws RemoteException {
+                call(NioProtocol.IMPORT_CLOSE, out -> out.writeLong(handle), NONE);
+            }
+        };
+    }
+
+    @Override
+    public StudentStatsDTO getStudentStats(Long studentId) throws RemoteException {
+        return call(NioProtocol.STUDENT_STATS, out -> NioProtocol.writeLong(out, studentId), NioProtocol::readStudentStats);
+    }
+
+    @Override
+    public CourseStatsDTO getCourseStats(String courseName) throws RemoteException {
+        return call(NioProtocol.COURSE_STATS, out -> NioProtocol.writeString(out, courseName), NioProtocol::readCourseStats);
+    }
+
+    @Override
+    public List<CourseStatsDTO> getAllCourseStats() throws RemoteException {
+        return call(NioProtocol.ALL_COURSE_STATS, EMPTY, NioProtocol::readCourseStatsList);
+    }
+
+    @Override
+    public CourseRankingPage getCourseRanking(CourseRankingCursor cursor, int limit) throws RemoteException {
+        return call(NioProtocol.COURSE_RANKING, out -> {
+            NioProtocol.writeRankingCursor(out, cursor);
+            out.writeInt(limit);
+        }, NioProtocol::readRankingPage);
+    }
+
+    @Override
+    public List<RankingEntryDTO> getStudentsBelow(String courseName, double threshold, int limit) throws RemoteException {
+        return call(NioProtocol.STUDENTS_BELOW, out -> {
+            NioProtocol.writeString(out, courseName);
+            out.writeDouble(threshold);
+            out.writeInt(limit);
+        }, NioProtocol::readRankingEntries);
+    }
+
+    @Override
+    public ChangeLog getStudentsChangedSince(long version) throws RemoteException {
+        return call(NioProtocol.CHANGES_SINCE, out -> out.writeLong(version), NioProtocol::readChangeLog);
+    }
+
+    @Override
+    public synchronized void subscribe(StudentChangeListener listener) throws RemoteException {
+        if (listeners.isEmpty()) call(NioProtocol.SUBSCRIBE, EMPTY, NONE);
+        listeners.add(listener);
+    }
+
+    @Override
+    public synchronized void unsubscribe(StudentChangeListener listener) throws RemoteException {
+        if (listeners.remove(listener) && listeners.isEmpty()) call(NioProtocol.UNSUBSCRIBE, EMPTY, NONE);
+    }
+
+    @Override
+    public ServerStats getServerStats() throws RemoteException {
+        return call(NioProtocol.SERVER_STATS, EMPTY, NioProtocol::readServerStats);
+    }
+}
@@ -0,0 +1,91 @@
+package com.studentmanager.shared;
+
+import java.io.*;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Lista ocen przesyłana kolumnami: id jako różnice varint, oceny jako double[], nazwy przedmiotów przez słownik
+public class PackedGradeList extends AbstractList<GradeDTO> implements RandomAccess, Externalizable {
+    private static final long serialVersionUID = 1L;
+
+    private Long[] ids;
+    private String[] courseNames;
+    private double[] values;
+    // Oceny mogą być null tylko w DTO tworzonych ręcznie
+    private boolean[] missingValues;
+
+    // Wymagany przez Externalizable
+    public PackedGradeList() {
+        this(new Long[0], new String[0], new double[0], new boolean[0]);
+    }
+
+    private PackedGradeList(Long[] ids, String[] courseNames, double[] values, boolean[] missingValues) {
+        this.ids = ids;
+        this.courseNames = courseNames;
+        this.values = values;
+        this.missingValues = missingValues;
+    }
+
+    public static PackedGradeList of(List<GradeDTO> grades) {
+        if (grades instanceof PackedGradeList) return (PackedGradeList) grades;
+        int size = grades.size();
+        PackedGradeList list = new PackedGradeList(new Long[size], new String[size], new double[size], new boolean[size]);
+        for (int i = 0; i < size; i++) {
+            GradeDTO g = grades.get(i);
+            list.ids[i] = g.getId();
+            list.courseNames[i] = g.getCourseName();
+            list.missingValues[i] = g.getValue() == null;
+            list.values[i] = g.getValue() == null ? 0.0 : g.getValue();
+        }
+        return list;
+    }
+
+    @Override
+    public GradeDTO get(int index) {
+        return new GradeDTO(ids[index], courseNames[index], missingValues[index] ? null : values[index]);
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        WireFormat.writeVarInt(out, ids.length);
+        WireFormat.writeIds(out, ids);
+        WireFormat.writeDictionary(out, courseNames);
+        for (int i = 0; i < values.length; i++) {
+            out.writeBoolean(missingValues[i]);
+            if (!missingValues[i]) out.writeDouble(values[i]);
+        }
+    }
+
+    public static PackedGradeList readFrom(DataInput in) throws IOException {
+        // Na ocenę co najmniej: znacznik id, kod słownika, znacznik wartości
+        int size = WireFormat.readSize(in, 3);
+        Long[] ids = WireFormat.readIds(in, size);
+        String[] courseNames = WireFormat.readDictionary(in, size);
+        double[] values = new double[size];
+        boolean[] missing = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            missing[i] = in.readBoolean();
+            if (!missing[i]) values[i] = in.readDouble();
+        }
+        return new PackedGradeList(ids, courseNames, values, missing);
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        writeTo(out);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        PackedGradeList read = readFrom(in);
+        this.ids = read.ids;
+        this.courseNames = read.courseNames;
+        this.values = read.values;
+        this.missingValues = read.missingValues;
+    }
+}
@@ -0,0 +1,86 @@
+package com.studentmanager.shared;
+
+import java.io.*;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Lista studentów przesyłana kolumnami zamiast jako ArrayList obiektów StudentDTO.
+// Id jako różnice varint, imiona i nazwiska przez słownik - dla dużych list kilkukrotnie mniej bajtów
+// i szybsza (de)serializacja. Dla kodu klienta to zwykła, niemodyfikowalna List<StudentDTO>.
+public class PackedStudentList extends AbstractList<StudentDTO> implements RandomAccess, Externalizable {
+    private static final long serialVersionUID = 1L;
+
+    private Long[] ids;
+    private String[] firstNames;
+    private String[] lastNames;
+    private String[] indexNumbers;
+
+    // Wymagany przez Externalizable
+    public PackedStudentList() {
+        this(new Long[0], new String[0], new String[0], new String[0]);
+    }
+
+    private PackedStudentList(Long[] ids, String[] firstNames, String[] lastNames, String[] indexNumbers) {
+        this.ids = ids;
+        this.firstNames = firstNames;
+        this.lastNames = lastNames;
+        this.indexNumbers = indexNumbers;
+    }
+
+    public static PackedStudentList of(List<StudentDTO> students) {
+        if (students instanceof PackedStudentList) return (PackedStudentList) students;
+        int size = students.size();
+        PackedStudentList list = new PackedStudentList(new Long[size], new String[size], new String[size], new String[size]);
+        for (int i = 0; i < size; i++) {
+            StudentDTO s = students.get(i);
+            list.ids[i] = s.getId();
+            list.firstNames[i] = s.getFirstName();
+            list.lastNames[i] = s.getLastName();
+            list.indexNumbers[i] = s.getIndexNumber();
+        }
+        return list;
+    }
+
+    @Override
+    public StudentDTO get(int index) {
+        return new StudentDTO(ids[index], firstNames[index], lastNames[index], indexNumbers[index]);
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        WireFormat.writeVarInt(out, ids.length);
+        WireFormat.writeIds(out, ids);
+        WireFormat.writeDictionary(out, firstNames);
+        WireFormat.writeDictionary(out, lastNames);
+        WireFormat.writeStrings(out, indexNumbers);
+    }
+
+    public static PackedStudentList readFrom(DataInput in) throws IOException {
+        // Na studenta co najmniej: znacznik id, dwa kody słownika, znacznik numeru indeksu
+        int size = WireFormat.readSize(in, 4);
+        Long[] ids = WireFormat.readIds(in, size);
+        String[] firstNames = WireFormat.readDictionary(in, size);
+        String[] lastNames = WireFormat.readDictionary(in, size);
+        String[] indexNumbers = WireFormat.readStrings(in, size);
+        return new PackedStudentList(ids, firstNames, lastNames, indexNumbers);
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        writeTo(out);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        PackedStudentList read = readFrom(in);
+        this.ids = read.ids;
+        this.firstNames = read.firstNames;
+        this.lastNames = read.lastNames;
+        this.indexNumbers = read.indexNumbers;
+    }
+}
@@ -0,0 +1,25 @@
+package com.studentmanager.shared;
+
+import java.io.Serializable;
+
+public class RankingEntryDTO implements Serializable {
+    private final int rank;
+    private final StudentDTO student;
+    private final double value;
+
+    public RankingEntryDTO(int rank, StudentDTO student, double value) {
+        this.rank = rank;
+        this.student = student;
+        this.value = value;
+    }
+
+    // Miejsce w przedmiocie: 1 + liczba studentów z wyższą oceną (równe oceny - to samo miejsce)
+    public int getRank() { return rank; }
+    public StudentDTO getStudent() { return student; }
+    public double getValue() { return value; }
+
+    @Override
+    public String toString() {
+        return rank + ". " + student + ": " + value;
+    }
+}
@@ -0,0 +1,32 @@
+package com.studentmanager.shared;
+
+import java.io.Serializable;
+import java.util.Map;
+
+public class ServerStats implements Serializable {
+    private final long uptimeMillis;
+    private final Map<String, MethodStats> methods;
+    private final Map<String, Number> gauges;
+
+    public ServerStats(long uptimeMillis, Map<String, MethodStats> methods, Map<String, Number> gauges) {
+        this.uptimeMillis = uptimeMillis;
+        this.methods = methods;
+        this.gauges = gauges;
+    }
+
+    public long getUptimeMillis() { return uptimeMillis; }
+
+    // Klucz - nazwa metody StudentService
+    public Map<String, MethodStats> getMethods() { return methods; }
+
+    // Pozostałe wskaźniki serwera, np. "gradeCache.hits", "pool.active"
+    public Map<String, Number> getGauges() { return gauges; }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Uptime: " + uptimeMillis / 1000 + " s\n");
+        methods.values().forEach(m -> sb.append(m).append('\n'));
+        gauges.forEach((k, v) -> sb.append(k).append(" = ").append(v).append('\n'));
+        return sb.toString();
+    }
+}
@@ -4,11 +4,14 @@ import javax.persistence.*;
 import java.io.Serializable;
 
 @Entity
-@Table(name = "students")
+// Cache drugiego poziomu, jeśli włączony na serwerze (cache.l2.enabled)
+@Cacheable
+@Table(name = "students", indexes = @Index(name = "idx_students_change_version", columnList = "change_version"))
 public class Student implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "students_seq")
+    @SequenceGenerator(name = "students_seq", sequenceName = "students_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "first_name", nullable = false)
@@ -20,6 +23,10 @@ public class Student implements Serializable {
     @Column(name = "index_number", nullable = false, unique = true)
     private String indexNumber;
 
+    // Wersja transakcji, która zapisała wiersz (synchronizacja przyrostowa); null dla wierszy sprzed jej wprowadzenia
+    @Column(name = "change_version")
+    private Long changeVersion;
+
     public Student() {}
 
     public Student(String firstName, String lastName, String indexNumber) {
@@ -37,6 +44,8 @@ public class Student implements Serializable {
     public void setLastName(String lastName) { this.lastName = lastName; }
     public String getIndexNumber() { return indexNumber; }
     public void setIndexNumber(String indexNumber) { this.indexNumber = indexNumber; }
+    public Long getChangeVersion() { return changeVersion; }
+    public void setChangeVersion(Long changeVersion) { this.changeVersion = changeVersion; }
     
     @Override
     public String toString() {
@@ -0,0 +1,10 @@
+package com.studentmanager.shared;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+
+// Obiekt zdalny klienta, do którego serwer wysyła zmiany danych
+public interface StudentChangeListener extends Remote {
+    void onChanges(List<ChangeEvent> events) throws RemoteException;
+}
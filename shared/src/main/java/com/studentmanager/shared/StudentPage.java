@@ -0,0 +1,23 @@
+package com.studentmanager.shared;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class StudentPage implements Serializable {
+    private final List<StudentDTO> students;
+    private final StudentPageCursor nextCursor;
+
+    public StudentPage(List<StudentDTO> students, StudentPageCursor nextCursor) {
+        this.students = students;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<StudentDTO> getStudents() { return students; }
+
+    // Kursor następnej strony, null gdy to ostatnia strona
+    public StudentPageCursor getNextCursor() { return nextCursor; }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,29 @@
+package com.studentmanager.shared;
+
+import java.io.Serializable;
+
+// Pozycja w liście studentów (keyset) - wartość klucza sortowania i id ostatniego wiersza poprzedniej strony
+public class StudentPageCursor implements Serializable {
+    private final StudentSortKey sortKey;
+    private final String afterKey;
+    private final Long afterId;
+
+    public StudentPageCursor(StudentSortKey sortKey, String afterKey, Long afterId) {
+        this.sortKey = sortKey;
+        this.afterKey = afterKey;
+        this.afterId = afterId;
+    }
+
+    // Kursor na początek listy
+    public static StudentPageCursor first(StudentSortKey sortKey) {
+        return new StudentPageCursor(sortKey, null, null);
+    }
+
+    public StudentSortKey getSortKey() { return sortKey; }
+    public String getAfterKey() { return afterKey; }
+    public Long getAfterId() { return afterId; }
+
+    public boolean isFirst() {
+        return afterId == null;
+    }
+}
@@ -3,17 +3,59 @@ package com.studentmanager.shared;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
 import java.util.List;
+import java.util.Map;
 
 public interface StudentService extends Remote {
     List<StudentDTO> getAllStudents() throws RemoteException;
+
+    // Stronicowanie keyset - kolejna strona zaczyna się za pozycją wskazaną przez kursor
+    StudentPage getStudentsPage(StudentPageCursor cursor, int limit) throws RemoteException;
     
+    // Wyszukiwanie po imieniu, nazwisku i numerze indeksu (bez wielkości liter i polskich znaków),
+    // najlepiej pasujący najpierw
+    List<StudentDTO> searchStudents(String query, int limit) throws RemoteException;
+
     // Metoda do pobierania ocen dla konkretnego studenta
     List<GradeDTO> getGradesForStudent(Long studentId) throws RemoteException;
 
+    // Oceny wielu studentów w jednym wywołaniu (np. wiersze sąsiadujące z zaznaczonym), w kolejności listy
+    Map<Long, List<GradeDTO>> getGradesForStudents(List<Long> studentIds) throws RemoteException;
+
     void addStudent(StudentDTO student) throws RemoteException;
     void removeStudent(Long studentId) throws RemoteException;
     
     void addCourse(String courseName) throws RemoteException;
     void addGrade(Long studentId, String courseName, int gradeValue) throws RemoteException;
     void removeGrade(Long studentId, String courseName) throws RemoteException;
+
+    // Import masowy - każdy wiersz dostaje własny wynik, błędny wiersz nie przerywa importu
+    ImportReport addStudents(List<StudentDTO> students) throws RemoteException;
+    ImportReport addGrades(List<GradeEntryDTO> grades) throws RemoteException;
+
+    // Eksport i import całego dziennika ocen paczkami (np. do/z CSV); obiekt zdalny trzeba zamknąć po użyciu
+    GradebookExport exportGradebook(int chunkSize) throws RemoteException;
+    GradebookImport importGradebook() throws RemoteException;
+
+    // Statystyki ocen utrzymywane na bieżąco przez serwer
+    StudentStatsDTO getStudentStats(Long studentId) throws RemoteException;
+    CourseStatsDTO getCourseStats(String courseName) throws RemoteException;
+    // Przedmioty z co najmniej jedną oceną wraz ze średnią
+    List<CourseStatsDTO> getAllCourseStats() throws RemoteException;
+
+    // Ranking przedmiotu od najwyższej oceny (np. pierwsza strona z limitem 10 - najlepsza dziesiątka),
+    // kolejne strony jak w getStudentsPage
+    CourseRankingPage getCourseRanking(CourseRankingCursor cursor, int limit) throws RemoteException;
+    // Studenci z oceną z przedmiotu poniżej progu (np. niezaliczający), od najniższej
+    List<RankingEntryDTO> getStudentsBelow(String courseName, double threshold, int limit) throws RemoteException;
+
+    // Synchronizacja przyrostowa - zmiany (z usunięciami) zatwierdzone po podanej wersji.
+    // Wersja <= 0 lub nieznana serwerowi zwraca ChangeLog.isResync() z wersją, od której można zacząć.
+    ChangeLog getStudentsChangedSince(long version) throws RemoteException;
+
+    // Powiadomienia o zmianach - serwer wysyła paczki zdarzeń do zarejestrowanego obiektu klienta
+    void subscribe(StudentChangeListener listener) throws RemoteException;
+    void unsubscribe(StudentChangeListener listener) throws RemoteException;
+
+    // Czasy wywołań (p50/p99/max), przepustowość i błędy per metoda oraz wskaźniki serwera
+    ServerStats getServerStats() throws RemoteException;
 }
\ No newline at end of file
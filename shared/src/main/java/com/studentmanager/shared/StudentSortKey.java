@@ -0,0 +1,8 @@
+package com.studentmanager.shared;
+
+// Klucz sortowania listy studentów przy stronicowaniu
+public enum StudentSortKey {
+    ID,
+    LAST_NAME,
+    INDEX_NUMBER
+}
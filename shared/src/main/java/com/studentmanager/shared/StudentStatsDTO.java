@@ -0,0 +1,25 @@
+package com.studentmanager.shared;
+
+import java.io.Serializable;
+
+public class StudentStatsDTO implements Serializable {
+    private final Long studentId;
+    private final int count;
+    private final double mean;
+
+    public StudentStatsDTO(Long studentId, int count, double mean) {
+        this.studentId = studentId;
+        this.count = count;
+        this.mean = mean;
+    }
+
+    public Long getStudentId() { return studentId; }
+    public int getCount() { return count; }
+    // Średnia ocen, 0 gdy student nie ma ocen
+    public double getMean() { return mean; }
+
+    @Override
+    public String toString() {
+        return String.format("%d ocen, średnia %.2f", count, mean);
+    }
+}
@@ -0,0 +1,39 @@
+package com.studentmanager.shared;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+// Ślad po usunięciu studenta lub oceny - usunięte wiersze też muszą trafić do synchronizacji przyrostowej
+@Entity
+@Table(name = "tombstones", indexes = @Index(name = "idx_tombstones_change_version", columnList = "change_version"))
+public class Tombstone implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tombstones_seq")
+    @SequenceGenerator(name = "tombstones_seq", sequenceName = "tombstones_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "change_version", nullable = false)
+    private Long changeVersion;
+
+    // Bez klucza obcego - student mógł zostać usunięty
+    @Column(name = "student_id", nullable = false)
+    private Long studentId;
+
+    // null - usunięto całego studenta, w przeciwnym razie jego ocenę z tego przedmiotu
+    @Column(name = "course_name")
+    private String courseName;
+
+    public Tombstone() {}
+
+    public Tombstone(Long changeVersion, Long studentId, String courseName) {
+        this.changeVersion = changeVersion;
+        this.studentId = studentId;
+        this.courseName = courseName;
+    }
+
+    public Long getId() { return id; }
+    public Long getChangeVersion() { return changeVersion; }
+    public Long getStudentId() { return studentId; }
+    public String getCourseName() { return courseName; }
+}
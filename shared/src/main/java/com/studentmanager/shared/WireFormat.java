@@ -0,0 +1,127 @@
+package com.studentmanager.shared;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Pomocnicze kodowanie kolumn w PackedStudentList/PackedGradeList:
+// liczby jako varint (mała liczba -> mało bajtów), powtarzające się napisy przez słownik.
+final class WireFormat {
+    private WireFormat() {}
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        // ZigZag - małe liczby ujemne też zajmują mało bajtów
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long v = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    // Liczność listy albo tablicy. W ramce NIO każdy element zajmuje co najmniej minBytes bajtów, więc liczność
+    // większa niż pozwalają pozostałe bajty oznacza uszkodzoną ramkę - odrzucamy ją przed alokacją
+    static int readSize(DataInput in, int minBytes) throws IOException {
+        int size = readVarInt(in);
+        if (size < 0) throw new ProtocolException("Nieprawidłowa liczba elementów: " + size);
+        if (in instanceof NioProtocol.FrameInput && size > ((NioProtocol.FrameInput) in).available() / minBytes) {
+            throw new ProtocolException("Liczba elementów " + size + " przekracza rozmiar ramki");
+        }
+        return size;
+    }
+
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        writeVarLong(out, value);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        return (int) readVarLong(in);
+    }
+
+    // Id zapisywane jako różnice kolejnych wartości (null = brak id)
+    static void writeIds(DataOutput out, Long[] ids) throws IOException {
+        long previous = 0;
+        for (Long id : ids) {
+            out.writeBoolean(id != null);
+            if (id != null) {
+                writeVarLong(out, id - previous);
+                previous = id;
+            }
+        }
+    }
+
+    static Long[] readIds(DataInput in, int size) throws IOException {
+        Long[] ids = new Long[size];
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            if (in.readBoolean()) {
+                previous += readVarLong(in);
+                ids[i] = previous;
+            }
+        }
+        return ids;
+    }
+
+    // Kolumna napisów jako słownik + kody; kod 0 oznacza null
+    static void writeDictionary(DataOutput out, String[] values) throws IOException {
+        Map<String, Integer> codes = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        int[] encoded = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            String value = values[i];
+            if (value == null) continue;
+            Integer code = codes.get(value);
+            if (code == null) {
+                dictionary.add(value);
+                code = dictionary.size();
+                codes.put(value, code);
+            }
+            encoded[i] = code;
+        }
+        writeVarInt(out, dictionary.size());
+        for (String value : dictionary) out.writeUTF(value);
+        for (int code : encoded) writeVarInt(out, code);
+    }
+
+    static String[] readDictionary(DataInput in, int size) throws IOException {
+        // Każdy napis słownika to co najmniej 2 bajty długości writeUTF
+        String[] dictionary = new String[readSize(in, 2) + 1];
+        for (int i = 1; i < dictionary.length; i++) dictionary[i] = in.readUTF();
+        String[] values = new String[size];
+        for (int i = 0; i < size; i++) values[i] = dictionary[readVarInt(in)];
+        return values;
+    }
+
+    // Kolumna napisów bez powtórzeń (np. numery indeksów)
+    static void writeStrings(DataOutput out, String[] values) throws IOException {
+        for (String value : values) {
+            out.writeBoolean(value != null);
+            if (value != null) out.writeUTF(value);
+        }
+    }
+
+    static String[] readStrings(DataInput in, int size) throws IOException {
+        String[] values = new String[size];
+        for (int i = 0; i < size; i++) {
+            if (in.readBoolean()) values[i] = in.readUTF();
+        }
+        return values;
+    }
+}